@@ -0,0 +1,100 @@
+package com.filemanager.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.filemanager.service.FileSystemManager;
+
+/**
+ * Readers and writers sharing one tree, for the thread-safe implementations. Each group runs
+ * six reader threads against two writer threads; JMH reports each side's latency separately.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ContendedBenchmark {
+    @Param({"CONCURRENT", "SHARDED", "SNAPSHOT"})
+    Implementation implementation;
+
+    @Param({"WIDE", "BALANCED"})
+    Shape shape;
+
+    @Param({"10000", "1000000"})
+    int nodes;
+
+    private FileSystemManager fileSystemManager;
+    private List<String> folders;
+    private List<String> files;
+    private final AtomicLong added = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void buildTree() {
+        SyntheticTree tree = new SyntheticTree(shape, nodes);
+        fileSystemManager = tree.load(implementation);
+        folders = tree.folders;
+        files = tree.files;
+    }
+
+    @State(Scope.Thread)
+    public static class Rotation {
+        int next;
+
+        int advance() {
+            next = (next + 7919) & Integer.MAX_VALUE;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public List<String> listContents(Rotation rotation) {
+        return fileSystemManager.listContents(folders.get(rotation.advance() % folders.size()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void addOrMove(Rotation rotation) {
+        int next = rotation.advance();
+        if ((next & 1) == 0) {
+            fileSystemManager.addFileOrFolder(folders.get(next % folders.size()), "new" + added.getAndIncrement(), false);
+        } else {
+            fileSystemManager.moveFileOrFolder(files.get(next % files.size()), folders.get((next >>> 3) % folders.size()));
+        }
+    }
+
+    @Benchmark
+    @Group("scan")
+    @GroupThreads(2)
+    public List<String> searchFileLikeMatch() {
+        return fileSystemManager.searchFileLikeMatch(SyntheticTree.ROOT, "f12345");
+    }
+
+    @Benchmark
+    @Group("scan")
+    @GroupThreads(2)
+    public void move(Rotation rotation) {
+        int next = rotation.advance();
+        fileSystemManager.moveFileOrFolder(files.get(next % files.size()), folders.get((next >>> 3) % folders.size()));
+    }
+}
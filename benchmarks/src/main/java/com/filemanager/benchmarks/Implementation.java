@@ -0,0 +1,52 @@
+package com.filemanager.benchmarks;
+
+import com.filemanager.service.CompactFileSystemManager;
+import com.filemanager.service.ConcurrentFileSystemManager;
+import com.filemanager.service.FileSystemManager;
+import com.filemanager.service.FileSystemManagerImpl;
+import com.filemanager.service.ShardedFileSystemManager;
+import com.filemanager.service.SnapshotFileSystemManager;
+
+/**
+ * The in-memory FileSystemManager implementations under comparison.
+ */
+public enum Implementation {
+    OBJECT_TREE {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new FileSystemManagerImpl(rootName);
+        }
+    },
+    OBJECT_TREE_TRIGRAMS {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new FileSystemManagerImpl(rootName, true);
+        }
+    },
+    CONCURRENT {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new ConcurrentFileSystemManager(rootName);
+        }
+    },
+    SHARDED {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new ShardedFileSystemManager(rootName);
+        }
+    },
+    SNAPSHOT {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new SnapshotFileSystemManager(rootName);
+        }
+    },
+    COMPACT {
+        @Override
+        FileSystemManager create(String rootName) {
+            return new CompactFileSystemManager(rootName);
+        }
+    };
+
+    abstract FileSystemManager create(String rootName);
+}
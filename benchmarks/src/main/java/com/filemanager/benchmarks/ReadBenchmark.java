@@ -0,0 +1,84 @@
+package com.filemanager.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.filemanager.service.FileSystemManager;
+
+/**
+ * Single-threaded reads against a prebuilt tree. Each invocation targets the next folder or
+ * file in a fixed rotation, so no single entry stays hot in the caches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReadBenchmark {
+    @Param({"OBJECT_TREE", "CONCURRENT", "SHARDED", "SNAPSHOT", "COMPACT"})
+    Implementation implementation;
+
+    @Param({"DEEP", "WIDE", "BALANCED"})
+    Shape shape;
+
+    @Param({"10000", "1000000"})
+    int nodes;
+
+    private FileSystemManager fileSystemManager;
+    private List<String> folders;
+    private List<String> files;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildTree() {
+        SyntheticTree tree = new SyntheticTree(shape, nodes);
+        fileSystemManager = tree.load(implementation);
+        folders = tree.folders;
+        files = tree.files;
+    }
+
+    private String nextFolder() {
+        next = (next + 7919) & Integer.MAX_VALUE;
+        return folders.get(next % folders.size());
+    }
+
+    @Benchmark
+    public List<String> listContents() {
+        return fileSystemManager.listContents(nextFolder());
+    }
+
+    @Benchmark
+    public List<String> listDirectoryStructure() {
+        return fileSystemManager.listDirectoryStructure();
+    }
+
+    @Benchmark
+    public String searchFileExactMatch() {
+        String folder = nextFolder();
+        return fileSystemManager.searchFileExactMatch(folder, files.get(next % files.size()));
+    }
+
+    @Benchmark
+    public List<String> searchFileLikeMatch() {
+        return fileSystemManager.searchFileLikeMatch(SyntheticTree.ROOT, "f12345");
+    }
+
+    @Benchmark
+    public List<String> searchFileLikeMatchFirst10() {
+        return fileSystemManager.searchFileLikeMatch(SyntheticTree.ROOT, "f1", 10);
+    }
+}
@@ -0,0 +1,17 @@
+package com.filemanager.benchmarks;
+
+/**
+ * Shapes of the synthetic trees.
+ */
+public enum Shape {
+    /**
+     * Chains of folders hanging from the root, each folder also holding one file. A chain stops
+     * at {@link SyntheticTree#MAX_CHAIN_DEPTH} folders and the next one starts, so large trees
+     * stay deep without every structure line carrying an indent as long as the whole tree.
+     */
+    DEEP,
+    /** Ten folders directly below the root, sharing all the files between them. */
+    WIDE,
+    /** Every folder holds three folders and seven files, filled level by level. */
+    BALANCED
+}
@@ -0,0 +1,86 @@
+package com.filemanager.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.service.FileSystemManager;
+
+/**
+ * Builds a tree of a given shape and size, and remembers names the benchmarks can aim at.
+ * <p>
+ * Folders are named "d" and files "f" followed by a running number, so every name is unique
+ * and addresses exactly one item. The tree is loaded with a single batch.
+ */
+final class SyntheticTree {
+    static final String ROOT = "root";
+    static final int MAX_CHAIN_DEPTH = 256;
+    private static final int WIDE_FOLDERS = 10;
+    private static final int BALANCED_FOLDERS = 3;
+    private static final int BALANCED_FILES = 7;
+
+    final List<String> folders = new ArrayList<>();
+    final List<String> files = new ArrayList<>();
+    private final List<FileSystemOperation> operations = new ArrayList<>();
+
+    SyntheticTree(Shape shape, int nodes) {
+        folders.add(ROOT);
+        switch (shape) {
+            case DEEP:
+                for (int depth = 0; size() < nodes; depth++) {
+                    String folder = addFolder(depth % MAX_CHAIN_DEPTH == 0 ? ROOT : folders.get(folders.size() - 1));
+                    if (size() < nodes) {
+                        addFile(folder);
+                    }
+                }
+                break;
+            case WIDE:
+                for (int i = 0; i < WIDE_FOLDERS && size() < nodes; i++) {
+                    addFolder(ROOT);
+                }
+                for (int i = 0; size() < nodes; i++) {
+                    addFile(folders.get(1 + i % (folders.size() - 1)));
+                }
+                break;
+            default:
+                Deque<String> pending = new ArrayDeque<>();
+                pending.add(ROOT);
+                while (size() < nodes) {
+                    String parent = pending.poll();
+                    for (int i = 0; i < BALANCED_FOLDERS && size() < nodes; i++) {
+                        pending.add(addFolder(parent));
+                    }
+                    for (int i = 0; i < BALANCED_FILES && size() < nodes; i++) {
+                        addFile(parent);
+                    }
+                }
+                break;
+        }
+    }
+
+    FileSystemManager load(Implementation implementation) {
+        FileSystemManager fileSystemManager = implementation.create(ROOT);
+        fileSystemManager.applyBatch(operations);
+        return fileSystemManager;
+    }
+
+    // Items including the root
+    int size() {
+        return 1 + operations.size();
+    }
+
+    private String addFolder(String parent) {
+        String name = "d" + folders.size();
+        operations.add(FileSystemOperation.add(parent, name, true));
+        folders.add(name);
+        return name;
+    }
+
+    private void addFile(String parent) {
+        String name = "f" + files.size() + ".txt";
+        operations.add(FileSystemOperation.add(parent, name, false));
+        files.add(name);
+    }
+}
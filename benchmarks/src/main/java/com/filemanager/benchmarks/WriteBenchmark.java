@@ -0,0 +1,72 @@
+package com.filemanager.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.filemanager.service.FileSystemManager;
+
+/**
+ * Single-threaded adds and moves. The tree is rebuilt before every iteration, so adds always
+ * land in a tree of the configured size plus what the iteration itself added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WriteBenchmark {
+    @Param({"OBJECT_TREE", "OBJECT_TREE_TRIGRAMS", "CONCURRENT", "SHARDED", "SNAPSHOT", "COMPACT"})
+    Implementation implementation;
+
+    @Param({"DEEP", "WIDE", "BALANCED"})
+    Shape shape;
+
+    @Param({"10000", "1000000"})
+    int nodes;
+
+    private SyntheticTree tree;
+    private FileSystemManager fileSystemManager;
+    private List<String> folders;
+    private List<String> files;
+    private int next;
+    private long added;
+
+    @Setup(Level.Trial)
+    public void buildShape() {
+        tree = new SyntheticTree(shape, nodes);
+        folders = tree.folders;
+        files = tree.files;
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTree() {
+        fileSystemManager = tree.load(implementation);
+    }
+
+    @Benchmark
+    public void addFileOrFolder() {
+        next = (next + 7919) & Integer.MAX_VALUE;
+        fileSystemManager.addFileOrFolder(folders.get(next % folders.size()), "new" + added++, false);
+    }
+
+    @Benchmark
+    public void moveFileOrFolder() {
+        // Moves a file to a pseudo-random folder; moves to the folder already holding it are rejected cheaply
+        next = (next + 7919) & Integer.MAX_VALUE;
+        fileSystemManager.moveFileOrFolder(files.get(next % files.size()), folders.get((next >>> 3) % folders.size()));
+    }
+}
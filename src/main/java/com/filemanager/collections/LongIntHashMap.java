@@ -0,0 +1,111 @@
+package com.filemanager.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from non-negative long keys to non-negative int values, held in two
+ * primitive arrays so entries cost no objects.
+ * <p>
+ * Collisions are resolved by linear probing, and removals shift later entries back instead of
+ * leaving tombstones, so lookups never slow down as entries come and go.
+ */
+public final class LongIntHashMap {
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntHashMap() {
+        keys = new long[16];
+        values = new int[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the value stored for the key, or -1 if there is none
+     */
+    public int get(long key) {
+        int slot = findSlot(key);
+        return keys[slot] == EMPTY ? -1 : values[slot];
+    }
+
+    public void put(long key, int value) {
+        int slot = findSlot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    public void remove(long key) {
+        int slot = findSlot(key);
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        // Shift back every later entry of the probe run that would no longer be reachable
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Grows the table once so that the given number of additional entries fit without resizing.
+     */
+    public void ensureCapacity(int additionalEntries) {
+        long needed = 2L * (size + additionalEntries);
+        if (needed > keys.length) {
+            resize((int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1));
+        }
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
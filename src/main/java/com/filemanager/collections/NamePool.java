@@ -0,0 +1,114 @@
+package com.filemanager.collections;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Deduplicated pool of names, stored as UTF-8 in one shared byte array.
+ * <p>
+ * Each distinct name is stored once and identified by a dense int id, so callers can keep ids
+ * in primitive arrays instead of holding a String per entry. Lookups go through an open
+ * addressing table of ids that compares the encoded bytes in place. Names are never removed.
+ */
+public final class NamePool {
+    private static final int NO_ID = -1;
+
+    private byte[] bytes = new byte[256];
+    private int byteCount;
+    private int[] offsets = new int[17]; // offsets[id] to offsets[id + 1] holds the id's bytes
+    private int[] hashes = new int[16];
+    private int size;
+    private int[] table = newTable(32); // Ids, NO_ID where empty
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the id of the name, adding it to the pool if it is not there yet
+     */
+    public int intern(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(encoded);
+        int slot = findSlot(encoded, hash);
+        if (table[slot] != NO_ID) {
+            return table[slot];
+        }
+        int id = size++;
+        if (byteCount + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + encoded.length));
+        }
+        System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+        byteCount += encoded.length;
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        hashes[id] = hash;
+        offsets[id + 1] = byteCount;
+        table[slot] = id;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the name, or -1 if the pool does not hold it
+     */
+    public int find(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        return table[findSlot(encoded, hash(encoded))];
+    }
+
+    public String get(int id) {
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    // Linear probing: the slot holding the name, or the empty slot where it belongs
+    private int findSlot(byte[] encoded, int hash) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (id == NO_ID || (hashes[id] == hash && matches(id, encoded))) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean matches(int id, byte[] encoded) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != encoded.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (bytes[start + i] != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        table = newTable(table.length * 2);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != NO_ID) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, NO_ID);
+        return table;
+    }
+
+    private static int hash(byte[] encoded) {
+        int h = Arrays.hashCode(encoded) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,221 @@
+package com.filemanager.collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable hash map (a hash array mapped trie) with O(log32 n) lookups and updates.
+ * <p>
+ * Each level of the trie consumes five bits of the key's hash; a node stores a bitmap of the
+ * occupied slots and a dense array holding either entries or child nodes. Updates copy only
+ * the nodes on the path to the changed entry, so every earlier version of the map stays
+ * intact and shares the rest of its structure with the new one.
+ */
+public final class PersistentHashMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (root == null) {
+            return null;
+        }
+        Entry entry = root.find(hash(key), 0, key);
+        return entry == null ? null : (V) entry.value;
+    }
+
+    public PersistentHashMap<K, V> put(K key, V value) {
+        int hash = hash(key);
+        Entry entry = new Entry(hash, key, value);
+        if (root == null) {
+            return new PersistentHashMap<>(new BitmapNode(0, new Object[0]).put(entry, 0), 1);
+        }
+        boolean replacing = root.find(hash, 0, key) != null;
+        return new PersistentHashMap<>(root.put(entry, 0), replacing ? size : size + 1);
+    }
+
+    public PersistentHashMap<K, V> remove(K key) {
+        int hash = hash(key);
+        if (root == null || root.find(hash, 0, key) == null) {
+            return this;
+        }
+        Node newRoot = root.remove(hash, 0, key);
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Entry(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int hash, Object key) {
+            return this.hash == hash && Objects.equals(this.key, key);
+        }
+    }
+
+    private interface Node {
+        Entry find(int hash, int shift, Object key);
+
+        Node put(Entry entry, int shift);
+
+        // Returns null once the node has no entries left
+        Node remove(int hash, int shift, Object key);
+    }
+
+    private static final class BitmapNode implements Node {
+        final int bitmap;
+        final Object[] slots; // Entry or Node, one per set bit
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        public Entry find(int hash, int shift, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof Entry) {
+                Entry entry = (Entry) slot;
+                return entry.matches(hash, key) ? entry : null;
+            }
+            return ((Node) slot).find(hash, shift + BITS, key);
+        }
+
+        @Override
+        public Node put(Entry entry, int shift) {
+            int bit = 1 << ((entry.hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = entry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                replacement = ((Node) slot).put(entry, shift + BITS);
+            } else {
+                Entry existing = (Entry) slot;
+                if (existing.matches(entry.hash, entry.key)) {
+                    replacement = entry;
+                } else if (existing.hash == entry.hash) {
+                    replacement = new CollisionNode(existing.hash, new Entry[]{existing, entry});
+                } else {
+                    replacement = new BitmapNode(0, new Object[0]).put(existing, shift + BITS).put(entry, shift + BITS);
+                }
+            }
+            Object[] newSlots = slots.clone();
+            newSlots[index] = replacement;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        @Override
+        public Node remove(int hash, int shift, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            Object slot = slots[index];
+            Object replacement = slot instanceof Node ? ((Node) slot).remove(hash, shift + BITS, key) : null;
+            if (replacement != null) {
+                Object[] newSlots = slots.clone();
+                newSlots[index] = replacement;
+                return new BitmapNode(bitmap, newSlots);
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+    }
+
+    // Holds entries whose full 32-bit hashes are equal
+    private static final class CollisionNode implements Node {
+        final int hash;
+        final Entry[] entries;
+
+        CollisionNode(int hash, Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        public Entry find(int hash, int shift, Object key) {
+            for (Entry entry : entries) {
+                if (entry.matches(hash, key)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node put(Entry entry, int shift) {
+            if (entry.hash != hash) {
+                // Different full hash: push this node one level down next to the new entry
+                return new BitmapNode(1 << ((hash >>> shift) & MASK), new Object[]{this}).put(entry, shift);
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].matches(entry.hash, entry.key)) {
+                    Entry[] newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(hash, newEntries);
+                }
+            }
+            Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        public Node remove(int hash, int shift, Object key) {
+            if (entries.length == 1) {
+                return null;
+            }
+            Entry[] newEntries = new Entry[entries.length - 1];
+            int next = 0;
+            for (Entry entry : entries) {
+                if (!entry.matches(hash, key)) {
+                    newEntries[next++] = entry;
+                }
+            }
+            return new CollisionNode(this.hash, newEntries);
+        }
+    }
+}
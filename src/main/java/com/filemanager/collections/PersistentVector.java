@@ -0,0 +1,145 @@
+package com.filemanager.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Immutable list with O(log32 n) indexed reads, appends and updates.
+ * <p>
+ * Elements live in the leaves of a 32-way trie; every update copies only the path from the
+ * root to the touched leaf, so older versions stay valid and share all other nodes with the
+ * new one. Nodes are sized to their content, which keeps short lists compact.
+ */
+public final class PersistentVector<E> implements Iterable<E> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    public PersistentVector<E> append(E element) {
+        if (size == 1 << (shift + BITS)) {
+            // The trie is full at this height, so grow a new root above it
+            return new PersistentVector<>(size + 1, shift + BITS, new Object[]{root, newPath(shift, element)});
+        }
+        return new PersistentVector<>(size + 1, shift, appendIn(root, shift, size, element));
+    }
+
+    public PersistentVector<E> set(int index, E element) {
+        checkIndex(index);
+        return new PersistentVector<>(size, shift, setIn(root, shift, index, element));
+    }
+
+    /**
+     * Visits the elements from the given index to the end, in order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachFrom(int fromIndex, Consumer<? super E> action) {
+        for (int index = fromIndex; index < size; ) {
+            Object[] leaf = leafFor(index);
+            for (int i = index & MASK; i < leaf.length; i++, index++) {
+                action.accept((E) leaf[i]);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        forEachFrom(0, action);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * @return an iterator over the elements from the given index to the end
+     */
+    public Iterator<E> iterator(int fromIndex) {
+        return new Iterator<E>() {
+            private int index = fromIndex;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (leaf == null || (index & MASK) == 0) {
+                    leaf = leafFor(index);
+                }
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    private Object[] leafFor(int index) {
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private static Object[] appendIn(Object[] node, int level, int index, Object element) {
+        int slot = (index >>> level) & MASK;
+        if (level == 0) {
+            Object[] copy = Arrays.copyOf(node, slot + 1);
+            copy[slot] = element;
+            return copy;
+        }
+        Object[] copy = Arrays.copyOf(node, Math.max(node.length, slot + 1));
+        copy[slot] = slot < node.length ? appendIn((Object[]) node[slot], level - BITS, index, element)
+                : newPath(level - BITS, element);
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object element) {
+        return level == 0 ? new Object[]{element} : new Object[]{newPath(level - BITS, element)};
+    }
+
+    private static Object[] setIn(Object[] node, int level, int index, Object element) {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : setIn((Object[]) node[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.filemanager.enums;
+
+/**
+ * Kind of change reported to a folder watch.
+ */
+public enum EventType {
+    ADDED,
+    MOVED_IN,
+    MOVED_OUT,
+    /**
+     * Events were dropped because the subscriber fell too far behind; it should re-list the
+     * folders it watches.
+     */
+    OVERFLOW
+}
@@ -0,0 +1,39 @@
+package com.filemanager.enums;
+
+/**
+ * The {@code FileSystemManager} calls that metrics are kept for. The paged
+ * {@code listContents} overload and the limited {@code searchFileLikeMatch} and
+ * {@code searchFiles} overloads are kept apart from the plain ones because their cost is
+ * bounded differently.
+ */
+public enum ManagerMethod {
+    ADD_FILE_OR_FOLDER("addFileOrFolder"),
+    MOVE_FILE_OR_FOLDER("moveFileOrFolder"),
+    APPLY("apply"),
+    APPLY_BATCH("applyBatch"),
+    GET_FOLDER_STATS("getFolderStats"),
+    WATCH("watch"),
+    LIST_CONTENTS("listContents"),
+    LIST_CONTENTS_PAGE("listContentsPage"),
+    LIST_DIRECTORY_STRUCTURE("listDirectoryStructure"),
+    LIST_DIRECTORY_STRUCTURE_IN_PARALLEL("listDirectoryStructureInParallel"),
+    ITERATE_DIRECTORY_STRUCTURE("iterateDirectoryStructure"),
+    WRITE_DIRECTORY_STRUCTURE("writeDirectoryStructure"),
+    SEARCH_FILE_EXACT_MATCH("searchFileExactMatch"),
+    SEARCH_FILE_LIKE_MATCH("searchFileLikeMatch"),
+    SEARCH_FILE_LIKE_MATCH_LIMITED("searchFileLikeMatchLimited"),
+    SEARCH_FILE_LIKE_MATCH_IN_PARALLEL("searchFileLikeMatchInParallel"),
+    ITERATE_FILE_LIKE_MATCH("iterateFileLikeMatch"),
+    SEARCH_FILES("searchFiles"),
+    SEARCH_FILES_LIMITED("searchFilesLimited");
+
+    private final String methodName;
+
+    ManagerMethod(String methodName) {
+        this.methodName = methodName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+}
@@ -0,0 +1,15 @@
+package com.filemanager.enums;
+
+/**
+ * Outcome of one add or move applied through a batch.
+ */
+public enum OperationStatus {
+    APPLIED,
+    PARENT_NOT_FOUND,
+    SOURCE_NOT_FOUND,
+    TARGET_NOT_FOUND,
+    ROOT_NOT_MOVABLE,
+    TARGET_INSIDE_SOURCE,
+    ALREADY_IN_TARGET,
+    NAME_TAKEN
+}
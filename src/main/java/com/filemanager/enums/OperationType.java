@@ -0,0 +1,6 @@
+package com.filemanager.enums;
+
+public enum OperationType {
+    ADD,
+    MOVE
+}
@@ -1,6 +1,18 @@
 package com.filemanager.enums;
 
+/**
+ * How a query is matched against file names. Every type ignores case.
+ */
 public enum SearchType {
     EXACT,
-    PREFIX
+    PREFIX,
+    /**
+     * "*" stands for any run of characters and "?" for exactly one; a backslash makes the next
+     * character literal.
+     */
+    GLOB,
+    /**
+     * A {@link java.util.regex.Pattern} that must match the whole name.
+     */
+    REGEX
 }
@@ -0,0 +1,84 @@
+package com.filemanager.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.filemanager.models.FileSystemItem;
+
+/**
+ * Inverted index from case-folded trigrams to the items whose names contain them, used to
+ * narrow substring ("contains") searches down to a few candidates.
+ * <p>
+ * Every posting list is a superset of the items matching a pattern that contains its trigram,
+ * so the shortest list of the pattern's trigrams is a complete candidate set; the candidates
+ * only need to be verified against the whole pattern. Like {@link SortedNameIndex} the index
+ * records names only and is unaffected by moves.
+ */
+public class NGramIndex {
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, List<FileSystemItem>> postings = new HashMap<>();
+
+    public void add(FileSystemItem item) {
+        for (long gram : distinctGrams(SortedNameIndex.fold(item.getName()))) {
+            postings.computeIfAbsent(gram, key -> new ArrayList<>(2)).add(item);
+        }
+    }
+
+    /**
+     * Removes an item from the posting list of each of its trigrams, at a cost proportional to
+     * the length of those lists.
+     */
+    public void remove(FileSystemItem item) {
+        for (long gram : distinctGrams(SortedNameIndex.fold(item.getName()))) {
+            List<FileSystemItem> items = postings.get(gram);
+            if (items != null && items.removeIf(indexed -> indexed == item) && items.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Returns the items that may contain the pattern, in the order they were indexed.
+     *
+     * @param foldedPattern the case-folded pattern
+     * @return the candidates to verify, or null if the pattern is shorter than a gram and the
+     *         index cannot narrow the search
+     */
+    public List<FileSystemItem> candidates(String foldedPattern) {
+        if (foldedPattern.length() < GRAM_LENGTH) {
+            return null;
+        }
+        List<FileSystemItem> shortest = null;
+        for (long gram : distinctGrams(foldedPattern)) {
+            List<FileSystemItem> items = postings.get(gram);
+            if (items == null) {
+                return Collections.emptyList(); // Some trigram occurs in no name at all
+            }
+            if (shortest == null || items.size() < shortest.size()) {
+                shortest = items;
+            }
+        }
+        return shortest;
+    }
+
+    private static long[] distinctGrams(String folded) {
+        int count = Math.max(0, folded.length() - GRAM_LENGTH + 1);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == count ? grams : Arrays.copyOf(grams, distinct);
+    }
+}
@@ -0,0 +1,215 @@
+package com.filemanager.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.filemanager.enums.SearchType;
+
+/**
+ * A file name query of any {@link SearchType}, compiled once into a matcher over case-folded
+ * names.
+ * <p>
+ * Compiling also extracts the literal prefix and suffix every matching name must carry, such as
+ * "report-" and ".csv" for the glob "report-*-??.csv". The matcher checks them before anything
+ * else, and {@link SortedNameIndex} scans only the range of names sharing the prefix. A glob is
+ * split at its stars into segments, which are matched at the start, at the end and leftmost in
+ * between, so it never backtracks. A regular expression is matched against the folded name,
+ * ignoring case beyond US-ASCII too; only its leading literal characters are extracted, and none if it contains
+ * an alternation.
+ */
+public final class NamePattern {
+    private final SearchType searchType;
+    private final String literalPrefix;
+    private final String literalSuffix;
+    private final boolean literal;
+    private final char[][] segments; // Glob text between stars
+    private final boolean[][] anyCharacter; // Where a glob segment holds "?"
+    private final Pattern regex;
+
+    private NamePattern(SearchType searchType, String literalPrefix, String literalSuffix, boolean literal,
+                        char[][] segments, boolean[][] anyCharacter, Pattern regex) {
+        this.searchType = searchType;
+        this.literalPrefix = literalPrefix;
+        this.literalSuffix = literalSuffix;
+        this.literal = literal;
+        this.segments = segments;
+        this.anyCharacter = anyCharacter;
+        this.regex = regex;
+    }
+
+    /**
+     * @param query the name, prefix, glob or regular expression
+     * @param searchType how the query is matched
+     * @return the compiled pattern
+     * @throws IllegalArgumentException if a regular expression is malformed
+     */
+    public static NamePattern compile(String query, SearchType searchType) {
+        String foldedQuery = SortedNameIndex.fold(query);
+        switch (searchType) {
+            case EXACT:
+                return new NamePattern(searchType, foldedQuery, foldedQuery, true, null, null, null);
+            case PREFIX:
+                return new NamePattern(searchType, foldedQuery, "", false, null, null, null);
+            case GLOB:
+                return compileGlob(foldedQuery);
+            case REGEX:
+                return new NamePattern(searchType, regexLiteralPrefix(query), "", false, null, null,
+                        Pattern.compile(query, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            default:
+                throw new IllegalArgumentException("Unknown search type: " + searchType);
+        }
+    }
+
+    /**
+     * @return the folded text every matching name starts with, possibly empty
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * @return true if the pattern matches exactly the names that fold to its literal prefix
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    public boolean matches(String name) {
+        return matchesFolded(SortedNameIndex.fold(name));
+    }
+
+    /**
+     * @param foldedName a name already passed through {@link SortedNameIndex#fold}
+     */
+    public boolean matchesFolded(String foldedName) {
+        if (!foldedName.startsWith(literalPrefix) || !foldedName.endsWith(literalSuffix)) {
+            return false;
+        }
+        switch (searchType) {
+            case EXACT:
+                return foldedName.length() == literalPrefix.length();
+            case PREFIX:
+                return true;
+            case GLOB:
+                return matchesGlob(foldedName);
+            default:
+                return regex.matcher(foldedName).matches();
+        }
+    }
+
+    private boolean matchesGlob(String name) {
+        int last = segments.length - 1;
+        if (last == 0) {
+            return name.length() == segments[0].length && segmentAt(0, name, 0); // No star
+        }
+        int start = segments[0].length;
+        int end = name.length() - segments[last].length;
+        if (end < start || !segmentAt(0, name, 0) || !segmentAt(last, name, end)) {
+            return false;
+        }
+        // Taking the leftmost place for each middle segment leaves the most room for the rest
+        for (int i = 1; i < last; i++) {
+            int position = start;
+            while (position + segments[i].length <= end && !segmentAt(i, name, position)) {
+                position++;
+            }
+            if (position + segments[i].length > end) {
+                return false;
+            }
+            start = position + segments[i].length;
+        }
+        return true;
+    }
+
+    private boolean segmentAt(int segment, String name, int position) {
+        char[] characters = segments[segment];
+        boolean[] wildcards = anyCharacter[segment];
+        for (int i = 0; i < characters.length; i++) {
+            if (!wildcards[i] && name.charAt(position + i) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NamePattern compileGlob(String foldedGlob) {
+        List<StringBuilder> texts = new ArrayList<>();
+        List<List<Boolean>> wildcards = new ArrayList<>();
+        texts.add(new StringBuilder());
+        wildcards.add(new ArrayList<>());
+        for (int i = 0; i < foldedGlob.length(); i++) {
+            char c = foldedGlob.charAt(i);
+            if (c == '*') {
+                texts.add(new StringBuilder());
+                wildcards.add(new ArrayList<>());
+                continue;
+            }
+            boolean escaped = c == '\\' && i + 1 < foldedGlob.length();
+            if (escaped) {
+                c = foldedGlob.charAt(++i);
+            }
+            texts.get(texts.size() - 1).append(c);
+            wildcards.get(wildcards.size() - 1).add(c == '?' && !escaped);
+        }
+
+        char[][] segments = new char[texts.size()][];
+        boolean[][] anyCharacter = new boolean[texts.size()][];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = texts.get(i).toString().toCharArray();
+            anyCharacter[i] = new boolean[segments[i].length];
+            for (int j = 0; j < segments[i].length; j++) {
+                anyCharacter[i][j] = wildcards.get(i).get(j);
+            }
+        }
+
+        // The literal runs before the first wildcard and after the last one
+        char[] first = segments[0];
+        int prefixEnd = 0;
+        while (prefixEnd < first.length && !anyCharacter[0][prefixEnd]) {
+            prefixEnd++;
+        }
+        int last = segments.length - 1;
+        int suffixStart = segments[last].length;
+        while (suffixStart > 0 && !anyCharacter[last][suffixStart - 1]) {
+            suffixStart--;
+        }
+        boolean literal = segments.length == 1 && prefixEnd == first.length;
+        return new NamePattern(SearchType.GLOB, new String(first, 0, prefixEnd),
+                new String(segments[last], suffixStart, segments[last].length - suffixStart), literal,
+                segments, anyCharacter, null);
+    }
+
+    // Leading characters that can only match themselves, stopping before anything optional
+    private static String regexLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return ""; // Another alternative may start differently
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = regex.startsWith("^") ? 1 : 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length() && isAsciiPunctuation(regex.charAt(i + 1))) {
+                c = regex.charAt(++i); // An escaped symbol stands for itself
+            } else if (!isPlainAscii(c)) {
+                break;
+            }
+            char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+            if (next == '?' || next == '*' || next == '{') {
+                break; // The character may be absent
+            }
+            prefix.append(c);
+            if (next == '+') {
+                break;
+            }
+        }
+        return SortedNameIndex.fold(prefix.toString());
+    }
+
+    private static boolean isPlainAscii(char c) {
+        return c < 128 && (Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ' ' || c == '~');
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+        return c < 128 && !Character.isLetterOrDigit(c) && c > ' ';
+    }
+}
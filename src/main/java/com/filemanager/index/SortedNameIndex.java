@@ -0,0 +1,73 @@
+package com.filemanager.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.filemanager.models.FileSystemItem;
+
+/**
+ * Sorted index of items keyed by their case-folded name.
+ * <p>
+ * Exact lookups cost O(log n) and prefix lookups O(log n + matches), independent of where the
+ * items sit in the tree. Globs and regular expressions scan the names that share their literal
+ * prefix. The index only records names, so moving an item does not touch it; callers restrict
+ * results to a subtree through the items' parent chains.
+ */
+public class SortedNameIndex {
+    private final TreeMap<String, List<FileSystemItem>> itemsByFoldedName = new TreeMap<>();
+
+    public static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(FileSystemItem item) {
+        itemsByFoldedName.computeIfAbsent(fold(item.getName()), key -> new ArrayList<>(1)).add(item);
+    }
+
+    public void remove(FileSystemItem item) {
+        String foldedName = fold(item.getName());
+        List<FileSystemItem> items = itemsByFoldedName.get(foldedName);
+        if (items != null && items.removeIf(indexed -> indexed == item) && items.isEmpty()) {
+            itemsByFoldedName.remove(foldedName);
+        }
+    }
+
+    /**
+     * Visits the indexed items whose names match the pattern, in case-folded name order, until
+     * the visitor asks to stop. Only the names sharing the pattern's literal prefix are examined.
+     *
+     * @param pattern the compiled query
+     * @param visitor receives each matching item and returns false to stop the scan
+     */
+    public void forEachMatch(NamePattern pattern, Predicate<FileSystemItem> visitor) {
+        String prefix = pattern.getLiteralPrefix();
+        if (pattern.isLiteral()) {
+            List<FileSystemItem> items = itemsByFoldedName.get(prefix);
+            if (items != null) {
+                visitAll(items, visitor);
+            }
+            return;
+        }
+        for (Map.Entry<String, List<FileSystemItem>> entry : itemsByFoldedName.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break; // Past the last key sharing the prefix
+            }
+            if (pattern.matchesFolded(entry.getKey()) && !visitAll(entry.getValue(), visitor)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean visitAll(List<FileSystemItem> items, Predicate<FileSystemItem> visitor) {
+        for (FileSystemItem item : items) {
+            if (!visitor.test(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package com.filemanager.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.filemanager.enums.ManagerMethod;
+
+/**
+ * Call counts, failure counts and histograms of latency, nodes visited and result size, kept
+ * per {@link ManagerMethod}. Recording is lock-free and safe from any number of threads.
+ * <p>
+ * Read the metrics in process with {@link #get} and {@link #getOperations}, or register them
+ * with the platform MBean server to read them over JMX.
+ */
+public final class FileSystemMetrics implements FileSystemMetricsMXBean {
+    private final MethodRecorder[] recorders = new MethodRecorder[ManagerMethod.values().length];
+
+    public FileSystemMetrics() {
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new MethodRecorder();
+        }
+    }
+
+    public OperationMetrics get(ManagerMethod method) {
+        return recorders[method.ordinal()].snapshot(method.getMethodName());
+    }
+
+    @Override
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> operations = new ArrayList<>();
+        for (ManagerMethod method : ManagerMethod.values()) {
+            OperationMetrics metrics = get(method);
+            if (metrics.getCalls() > 0) {
+                operations.add(metrics);
+            }
+        }
+        return operations;
+    }
+
+    @Override
+    public void reset() {
+        for (MethodRecorder recorder : recorders) {
+            recorder.reset();
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * {@code com.filemanager:type=FileSystemMetrics,name=<name>}.
+     *
+     * @return the name the metrics were registered under
+     * @throws JMException if the name is malformed or already registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.filemanager:type=FileSystemMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    MethodRecorder recorder(ManagerMethod method) {
+        return recorders[method.ordinal()];
+    }
+
+    static final class MethodRecorder {
+        private final Histogram latencyNanos = new Histogram();
+        private final Histogram nodesVisited = new Histogram();
+        private final Histogram resultSize = new Histogram();
+        private final LongAdder failures = new LongAdder();
+
+        void recordCall(long nanos, boolean failed) {
+            latencyNanos.record(nanos);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        void recordNodesVisited(long nodes) {
+            nodesVisited.record(nodes);
+        }
+
+        void recordResultSize(long size) {
+            resultSize.record(size);
+        }
+
+        OperationMetrics snapshot(String name) {
+            return new OperationMetrics(name, failures.sum(), latencyNanos.snapshot(), nodesVisited.snapshot(), resultSize.snapshot());
+        }
+
+        void reset() {
+            latencyNanos.reset();
+            nodesVisited.reset();
+            resultSize.reset();
+            failures.reset();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.filemanager.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link FileSystemMetrics}. Each operation appears as composite data with its call
+ * and failure counts and the count, mean, max and percentiles of each histogram.
+ */
+public interface FileSystemMetricsMXBean {
+    /**
+     * @return metrics for every method that has been called at least once
+     */
+    List<OperationMetrics> getOperations();
+
+    void reset();
+}
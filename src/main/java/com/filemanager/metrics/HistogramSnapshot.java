@@ -0,0 +1,80 @@
+package com.filemanager.metrics;
+
+/**
+ * Immutable copy of a {@link Histogram}. Percentiles are reported as the highest value of the
+ * bucket they fall in, so they never understate; the maximum is exact.
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return valueAtPercentile(50.0);
+    }
+
+    public long getP90() {
+        return valueAtPercentile(90.0);
+    }
+
+    public long getP99() {
+        return valueAtPercentile(99.0);
+    }
+
+    public long getP999() {
+        return valueAtPercentile(99.9);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value at or below which the given percentage of the recorded values fall, or
+     *         0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(Histogram.highestValueIn(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + String.format("%.1f", getMean()) + ", p50=" + getP50()
+                + ", p99=" + getP99() + ", max=" + max;
+    }
+}
@@ -0,0 +1,246 @@
+package com.filemanager.metrics;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import com.filemanager.enums.ManagerMethod;
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+import com.filemanager.service.FileSystemManager;
+import com.filemanager.service.FileSystemWatcher;
+import com.filemanager.service.WatchSubscription;
+
+/**
+ * {@link FileSystemManager} decorator that records {@link FileSystemMetrics} for every call it
+ * passes on to the wrapped manager.
+ * <p>
+ * Each call records its latency and whether it failed. Adds and moves go through
+ * {@link FileSystemManager#apply}, so one that leaves the tree unchanged counts as a failure
+ * even though {@link #addFileOrFolder} and {@link #moveFileOrFolder} return normally. Calls
+ * that traverse the tree also record how many nodes they visited, and calls that return names
+ * record how many. The overhead is two clock reads and a few atomic increments per call, low
+ * enough to leave on in production.
+ */
+public class InstrumentedFileSystemManager implements FileSystemManager {
+    private final FileSystemManager delegate;
+    private final FileSystemMetrics metrics;
+
+    public InstrumentedFileSystemManager(FileSystemManager delegate) {
+        this(delegate, new FileSystemMetrics());
+    }
+
+    public InstrumentedFileSystemManager(FileSystemManager delegate, FileSystemMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public FileSystemMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        applyAs(ManagerMethod.ADD_FILE_OR_FOLDER, FileSystemOperation.add(parentFolderName, name, isFolder));
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        applyAs(ManagerMethod.MOVE_FILE_OR_FOLDER, FileSystemOperation.move(sourceName, destinationFolderName));
+    }
+
+    @Override
+    public OperationStatus apply(FileSystemOperation operation) {
+        return applyAs(ManagerMethod.APPLY, operation);
+    }
+
+    private OperationStatus applyAs(ManagerMethod method, FileSystemOperation operation) {
+        FileSystemMetrics.MethodRecorder recorder = metrics.recorder(method);
+        long start = System.nanoTime();
+        OperationStatus status;
+        try {
+            status = delegate.apply(operation);
+        } catch (RuntimeException | Error e) {
+            recorder.recordCall(System.nanoTime() - start, true);
+            throw e;
+        }
+        recorder.recordCall(System.nanoTime() - start, status != OperationStatus.APPLIED);
+        return status;
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        FileSystemMetrics.MethodRecorder recorder = metrics.recorder(ManagerMethod.APPLY_BATCH);
+        long start = System.nanoTime();
+        List<OperationStatus> results;
+        try {
+            results = delegate.applyBatch(operations);
+        } catch (RuntimeException | Error e) {
+            recorder.recordCall(System.nanoTime() - start, true);
+            throw e;
+        }
+        long failed = results.stream().filter(status -> status != OperationStatus.APPLIED).count();
+        recorder.recordCall(System.nanoTime() - start, failed > 0);
+        recorder.recordResultSize(results.size());
+        return results;
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        return measure(ManagerMethod.GET_FOLDER_STATS, false, () -> delegate.getFolderStats(folderName), stats -> stats == null ? 0 : 1);
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        return measure(ManagerMethod.WATCH, false, () -> delegate.watch(folderName, recursive, watcher),
+                subscription -> subscription == null ? 0 : 1);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        return measure(ManagerMethod.LIST_CONTENTS, false, () -> delegate.listContents(folderName), List::size);
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        return measure(ManagerMethod.LIST_CONTENTS_PAGE, false,
+                () -> delegate.listContents(folderName, cursor, limit, sortOrder), page -> page.getItems().size());
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        return measure(ManagerMethod.LIST_DIRECTORY_STRUCTURE, true, delegate::listDirectoryStructure, List::size);
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return measure(ManagerMethod.LIST_DIRECTORY_STRUCTURE_IN_PARALLEL, true,
+                () -> delegate.listDirectoryStructureInParallel(parallelism), List::size);
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return measureLazily(ManagerMethod.ITERATE_DIRECTORY_STRUCTURE, delegate::iterateDirectoryStructure);
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        FileSystemMetrics.MethodRecorder recorder = metrics.recorder(ManagerMethod.WRITE_DIRECTORY_STRUCTURE);
+        TraversalCounter counter = TraversalCounter.current();
+        long visitedBefore = counter.visited();
+        long start = System.nanoTime();
+        try {
+            delegate.writeDirectoryStructure(out);
+        } catch (IOException | RuntimeException | Error e) {
+            recorder.recordCall(System.nanoTime() - start, true);
+            throw e;
+        }
+        recorder.recordCall(System.nanoTime() - start, false);
+        recorder.recordNodesVisited(counter.visited() - visitedBefore);
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        return measure(ManagerMethod.SEARCH_FILE_EXACT_MATCH, false,
+                () -> delegate.searchFileExactMatch(folderName, fileName), match -> match == null ? 0 : 1);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return measure(ManagerMethod.SEARCH_FILE_LIKE_MATCH, true, () -> delegate.searchFileLikeMatch(folderName, pattern), List::size);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern, int limit) {
+        return measure(ManagerMethod.SEARCH_FILE_LIKE_MATCH_LIMITED, true,
+                () -> delegate.searchFileLikeMatch(folderName, pattern, limit), List::size);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        return measure(ManagerMethod.SEARCH_FILE_LIKE_MATCH_IN_PARALLEL, true,
+                () -> delegate.searchFileLikeMatchInParallel(folderName, pattern, parallelism), List::size);
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        return measureLazily(ManagerMethod.ITERATE_FILE_LIKE_MATCH, () -> delegate.iterateFileLikeMatch(folderName, pattern));
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType) {
+        return measure(ManagerMethod.SEARCH_FILES, true, () -> delegate.searchFiles(folderName, query, searchType), List::size);
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        return measure(ManagerMethod.SEARCH_FILES_LIMITED, true,
+                () -> delegate.searchFiles(folderName, query, searchType, limit), List::size);
+    }
+
+    // Times a read and records the size of its result, and for traversals the nodes visited
+    private <T> T measure(ManagerMethod method, boolean traverses, Supplier<T> call, ToLongFunction<T> resultSize) {
+        FileSystemMetrics.MethodRecorder recorder = metrics.recorder(method);
+        TraversalCounter counter = TraversalCounter.current();
+        long visitedBefore = counter.visited();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            recorder.recordCall(System.nanoTime() - start, true);
+            throw e;
+        }
+        recorder.recordCall(System.nanoTime() - start, false);
+        if (traverses) {
+            recorder.recordNodesVisited(counter.visited() - visitedBefore);
+        }
+        recorder.recordResultSize(resultSize.applyAsLong(result));
+        return result;
+    }
+
+    // Times creating the iterator; nodes visited and results are recorded once it is exhausted.
+    // The iterator counts into a counter of its own, so neither other work on the creating
+    // thread nor draining it on another thread skews its figure
+    private Iterator<String> measureLazily(ManagerMethod method, Supplier<Iterator<String>> call) {
+        FileSystemMetrics.MethodRecorder recorder = metrics.recorder(method);
+        TraversalCounter counter = TraversalCounter.detached();
+        long start = System.nanoTime();
+        Iterator<String> iterator;
+        try {
+            iterator = TraversalCounter.countingInto(counter, call);
+        } catch (RuntimeException | Error e) {
+            recorder.recordCall(System.nanoTime() - start, true);
+            throw e;
+        }
+        recorder.recordCall(System.nanoTime() - start, false);
+        return new Iterator<String>() {
+            private long returned;
+            private boolean recorded;
+
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = iterator.hasNext();
+                if (!hasNext && !recorded) {
+                    recorded = true;
+                    recorder.recordNodesVisited(counter.visited());
+                    recorder.recordResultSize(returned);
+                }
+                return hasNext;
+            }
+
+            @Override
+            public String next() {
+                String next = iterator.next();
+                returned++;
+                return next;
+            }
+        };
+    }
+}
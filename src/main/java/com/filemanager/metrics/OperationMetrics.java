@@ -0,0 +1,63 @@
+package com.filemanager.metrics;
+
+/**
+ * Immutable metrics for one {@code FileSystemManager} method, as reported by
+ * {@link FileSystemMetrics}.
+ */
+public final class OperationMetrics {
+    private final String name;
+    private final long failures;
+    private final HistogramSnapshot latencyNanos;
+    private final HistogramSnapshot nodesVisited;
+    private final HistogramSnapshot resultSize;
+
+    OperationMetrics(String name, long failures, HistogramSnapshot latencyNanos,
+            HistogramSnapshot nodesVisited, HistogramSnapshot resultSize) {
+        this.name = name;
+        this.failures = failures;
+        this.latencyNanos = latencyNanos;
+        this.nodesVisited = nodesVisited;
+        this.resultSize = resultSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return latencyNanos.getCount();
+    }
+
+    /**
+     * @return the calls that threw, plus the adds and moves that left the tree unchanged; a
+     *         batch counts once if any of its operations failed
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    public HistogramSnapshot getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return tree nodes visited per call, for the calls that traverse the tree
+     */
+    public HistogramSnapshot getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * @return names returned per call, for the calls that return names; lazy iterators are
+     *         counted once they are exhausted
+     */
+    public HistogramSnapshot getResultSize() {
+        return resultSize;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{calls=" + getCalls() + ", failures=" + failures + ", latencyNanos=[" + latencyNanos
+                + "], nodesVisited=[" + nodesVisited + "], resultSize=[" + resultSize + "]}";
+    }
+}
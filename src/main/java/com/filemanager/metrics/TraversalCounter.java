@@ -0,0 +1,66 @@
+package com.filemanager.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread running count of the tree nodes that traversals have visited.
+ * <p>
+ * Traversals look up the current thread's counter once when they start and bump it for every
+ * node they step onto, so counting costs a field increment per node. A caller measures one call
+ * by reading {@link #visited()} before and after it. A lazy traversal keeps counting into the
+ * counter that was current when it was created, even if another thread drains it, so a lazy
+ * traversal to be measured is created through {@link #countingInto} with a counter of its own.
+ */
+public final class TraversalCounter {
+    private static final ThreadLocal<TraversalCounter> CURRENT = ThreadLocal.withInitial(TraversalCounter::new);
+
+    private long visited;
+
+    private TraversalCounter() {
+    }
+
+    public static TraversalCounter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return a new counter that is not any thread's current counter
+     */
+    public static TraversalCounter detached() {
+        return new TraversalCounter();
+    }
+
+    /**
+     * Runs a call with the given counter as the current thread's counter, and restores the
+     * previous one afterwards. Traversals the call creates, lazy ones included, count into the
+     * given counter only.
+     *
+     * @param counter the counter to count into
+     * @param call the call to run
+     * @return what the call returned
+     */
+    public static <T> T countingInto(TraversalCounter counter, Supplier<T> call) {
+        TraversalCounter previous = CURRENT.get();
+        CURRENT.set(counter);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public void visit() {
+        visited++;
+    }
+
+    public void visit(long nodes) {
+        visited += nodes;
+    }
+
+    /**
+     * @return the number of nodes counted on this counter so far
+     */
+    public long visited() {
+        return visited;
+    }
+}
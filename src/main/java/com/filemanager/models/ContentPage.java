@@ -0,0 +1,38 @@
+package com.filemanager.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a folder listing, with the cursor to pass back for the following page.
+ */
+public class ContentPage {
+    private static final ContentPage EMPTY = new ContentPage(Collections.emptyList(), null);
+
+    private final List<String> items;
+    private final String nextCursor;
+
+    public ContentPage(List<String> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public static ContentPage empty() {
+        return EMPTY;
+    }
+
+    public List<String> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the cursor for the following page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,8 +1,29 @@
 package com.filemanager.models;
 
 public class File extends FileSystemItem {
+    private final long size;
+
     public File(String name) {
+        this(name, 0L);
+    }
+
+    /**
+     * @param size the size of the file in bytes
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public File(String name, long size) {
         super(name);
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return the size of the file in bytes, 0 if it was added without one
+     */
+    public long getSize() {
+        return size;
     }
 
     @Override
@@ -10,4 +31,3 @@ public class File extends FileSystemItem {
         return false;
     }
 }
-
@@ -0,0 +1,74 @@
+package com.filemanager.models;
+
+import java.util.Objects;
+
+import com.filemanager.enums.EventType;
+
+/**
+ * One change to the contents of a folder, as reported to a watch.
+ */
+public class FileSystemEvent {
+    private static final FileSystemEvent OVERFLOW = new FileSystemEvent(EventType.OVERFLOW, null, null, false);
+
+    private final EventType type;
+    private final String folderPath;
+    private final String name;
+    private final boolean folder;
+
+    public FileSystemEvent(EventType type, String folderPath, String name, boolean folder) {
+        this.type = type;
+        this.folderPath = folderPath;
+        this.name = name;
+        this.folder = folder;
+    }
+
+    public static FileSystemEvent overflow() {
+        return OVERFLOW;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return the absolute path of the folder whose contents changed, as of the change, or null
+     *         for an overflow
+     */
+    public String getFolderPath() {
+        return folderPath;
+    }
+
+    /**
+     * @return the name of the item that was added or moved, or null for an overflow
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isFolder() {
+        return folder;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FileSystemEvent)) {
+            return false;
+        }
+        FileSystemEvent event = (FileSystemEvent) other;
+        return type == event.type && folder == event.folder && Objects.equals(folderPath, event.folderPath)
+                && Objects.equals(name, event.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, folderPath, name, folder);
+    }
+
+    @Override
+    public String toString() {
+        return "FileSystemEvent{" + type + ", folder=" + folderPath + ", name=" + name + ", isFolder=" + folder + "}";
+    }
+}
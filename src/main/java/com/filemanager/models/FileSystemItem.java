@@ -2,6 +2,8 @@ package com.filemanager.models;
 
 public abstract class FileSystemItem {
     protected String name;
+    protected Folder parent;
+    protected long orderKey;
 
     public FileSystemItem(String name) {
         this.name = name;
@@ -11,6 +13,43 @@ public abstract class FileSystemItem {
         return name;
     }
 
+    /**
+     * @return the folder holding this item, or null for a root or detached item
+     */
+    public Folder getParent() {
+        return parent;
+    }
+
+    void setParent(Folder parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return the position key this item got when it was added to its current folder
+     */
+    public long getOrderKey() {
+        return orderKey;
+    }
+
+    void setOrderKey(long orderKey) {
+        this.orderKey = orderKey;
+    }
+
+    /**
+     * Checks whether this item sits somewhere below the given item by walking the parent
+     * chain, so the cost is bounded by the depth of this item rather than the size of the tree.
+     *
+     * @param ancestor the candidate ancestor
+     * @return true if the ancestor is a proper ancestor of this item
+     */
+    public boolean isDescendantOf(FileSystemItem ancestor) {
+        for (Folder current = parent; current != null; current = current.parent) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public abstract boolean isFolder();
 }
-
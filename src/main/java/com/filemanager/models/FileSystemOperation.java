@@ -0,0 +1,81 @@
+package com.filemanager.models;
+
+import com.filemanager.enums.OperationType;
+
+/**
+ * One add or move, to be applied as part of a batch.
+ */
+public class FileSystemOperation {
+    private final OperationType type;
+    private final String name;
+    private final String folderName;
+    private final boolean folder;
+    private final long size;
+
+    private FileSystemOperation(OperationType type, String name, String folderName, boolean folder, long size) {
+        this.type = type;
+        this.name = name;
+        this.folderName = folderName;
+        this.folder = folder;
+        this.size = size;
+    }
+
+    public static FileSystemOperation add(String parentFolderName, String name, boolean isFolder) {
+        return new FileSystemOperation(OperationType.ADD, name, parentFolderName, isFolder, 0L);
+    }
+
+    /**
+     * Adds a file that carries its size in bytes.
+     *
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public static FileSystemOperation addFile(String parentFolderName, String name, long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative: " + size);
+        }
+        return new FileSystemOperation(OperationType.ADD, name, parentFolderName, false, size);
+    }
+
+    public static FileSystemOperation move(String sourceName, String destinationFolderName) {
+        return new FileSystemOperation(OperationType.MOVE, sourceName, destinationFolderName, false, 0L);
+    }
+
+    public OperationType getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of the item to add, or the name of the item to move
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the parent folder of the item to add, or the destination folder of the move
+     */
+    public String getFolderName() {
+        return folderName;
+    }
+
+    /**
+     * @return true if an add creates a folder; always false for a move
+     */
+    public boolean isFolder() {
+        return folder;
+    }
+
+    /**
+     * @return the size in bytes of a file to add; 0 for folders, moves and files added without one
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return type == OperationType.ADD
+                ? "add " + (folder ? "folder " : "file ") + name + " to " + folderName
+                : "move " + name + " to " + folderName;
+    }
+}
@@ -1,35 +1,125 @@
 package com.filemanager.models;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.TreeMap;
 
+/**
+ * A folder holding its children in a hash map keyed by name, so lookups, adds and removals
+ * are O(1), plus an insertion-ordered slot array so listings keep the order in which the items
+ * were added.
+ * <p>
+ * Every child gets an order key when it is added. Keys only ever grow, which lets a listing
+ * resume after any key with a binary search, even after the item holding it has moved away.
+ * Slots left empty by removed children are squeezed out once they outnumber the live ones. A
+ * name-sorted view of the children is built on first use and maintained from then on.
+ * <p>
+ * A tree can also keep aggregate figures for every subtree: file and folder counts, total file
+ * bytes and the depth of the deepest item. Once {@link #trackStats()} is called on its root,
+ * adding or removing a child updates them along the parent chain in O(depth), so
+ * {@link #getStats()} answers in O(1). Tracking is opt-in because that upkeep makes building a
+ * long chain of folders quadratic. For the depth, a folder also counts how many children reach
+ * it; only when the last of them leaves does the folder rescan its direct children for the new
+ * deepest one.
+ */
 public class Folder extends FileSystemItem {
-    private List<FileSystemItem> items;
+    private static final int INITIAL_SLOTS = 4;
+
+    private Map<String, FileSystemItem> items;
+    private FileSystemItem[] slots = new FileSystemItem[INITIAL_SLOTS];
+    private long[] slotKeys = new long[INITIAL_SLOTS];
+    private int slotCount;
+    private long nextOrderKey;
+    private TreeMap<String, FileSystemItem> itemsInNameOrder;
+    private long descendantFiles;
+    private long descendantFolders;
+    private long descendantBytes;
+    private int maxDepth;
+    private int deepestChildren; // Children reaching maxDepth
+    private boolean statsTracked;
 
     public Folder(String name) {
         super(name);
-        this.items = new ArrayList<>();
+        this.items = new HashMap<>();
     }
 
-    public void addItem(FileSystemItem item) {
-        if(Objects.nonNull(getItem(item.getName()))){
-            return;
+    /**
+     * Adds an item to this folder unless an item with the same name is already present.
+     *
+     * @param item the item to add
+     * @return true if the item was added, false if the name is already taken
+     */
+    public boolean addItem(FileSystemItem item) {
+        if(Objects.nonNull(items.putIfAbsent(item.getName(), item))){
+            return false;
+        }
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slotCount * 2);
+            slotKeys = Arrays.copyOf(slotKeys, slotCount * 2);
+        }
+        item.setOrderKey(nextOrderKey);
+        slots[slotCount] = item;
+        slotKeys[slotCount++] = nextOrderKey++;
+        if (itemsInNameOrder != null) {
+            itemsInNameOrder.put(item.getName(), item);
+        }
+        item.setParent(this);
+        if (statsTracked) {
+            if (item.isFolder() && !((Folder) item).statsTracked) {
+                ((Folder) item).trackStats();
+            }
+            updateStats(item, 1);
         }
-        items.add(item);
+        return true;
     }
 
     public void removeItem(FileSystemItem item) {
-        items.remove(item);
+        if (item.getParent() != this) {
+            return;
+        }
+        items.remove(item.getName());
+        slots[Arrays.binarySearch(slotKeys, 0, slotCount, item.getOrderKey())] = null;
+        if (itemsInNameOrder != null) {
+            itemsInNameOrder.remove(item.getName());
+        }
+        if (statsTracked) {
+            updateStats(item, -1);
+        }
+        item.setParent(null);
+        if (slotCount > 2 * items.size() + INITIAL_SLOTS) {
+            compactSlots();
+        }
     }
 
-    public FileSystemItem getItem(String name) {
-        for (FileSystemItem item : items) {
-            if (item.getName().equals(name)) {
-                return item;
-            }
+    /**
+     * Makes room for the given number of additional children, so adding them in bulk does not
+     * grow the storage one doubling at a time.
+     *
+     * @param additionalItems the number of children about to be added
+     */
+    public void ensureCapacity(int additionalItems) {
+        if (slotCount + additionalItems > slots.length) {
+            slots = Arrays.copyOf(slots, slotCount + additionalItems);
+            slotKeys = Arrays.copyOf(slotKeys, slotCount + additionalItems);
+        }
+        if (additionalItems > items.size()) {
+            // Rehash once at the final size rather than on every doubling
+            Map<String, FileSystemItem> resized = new HashMap<>((int) ((items.size() + additionalItems) / 0.75f) + 1);
+            resized.putAll(items);
+            items = resized;
         }
-        return null;
+    }
+
+    public FileSystemItem getItem(String name) {
+        return items.get(name);
     }
 
     @Override
@@ -37,8 +127,212 @@ public class Folder extends FileSystemItem {
         return true;
     }
 
-    public List<FileSystemItem> getItems() {
-        return items;
+    /**
+     * @return a read-only view of the children, in the order they were added
+     */
+    public Collection<FileSystemItem> getItems() {
+        return new AbstractCollection<FileSystemItem>() {
+            @Override
+            public Iterator<FileSystemItem> iterator() {
+                return new SlotIterator(0);
+            }
+
+            @Override
+            public int size() {
+                return items.size();
+            }
+        };
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * Returns the children added after the given order key, in insertion order.
+     *
+     * @param orderKey the key to resume after, or -1 to start from the first child
+     * @param limit the maximum number of children to return
+     * @return up to limit children; O(log n + limit) when few slots are empty
+     */
+    public List<FileSystemItem> getItemsAfter(long orderKey, int limit) {
+        int position = Arrays.binarySearch(slotKeys, 0, slotCount, orderKey);
+        position = position >= 0 ? position + 1 : -position - 1;
+        List<FileSystemItem> page = new ArrayList<>(Math.min(limit, items.size()));
+        for (SlotIterator slotIterator = new SlotIterator(position); page.size() < limit && slotIterator.hasNext(); ) {
+            page.add(slotIterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Returns the children whose names sort after the given name.
+     *
+     * @param name the name to resume after, or null to start from the smallest name
+     * @param limit the maximum number of children to return
+     * @return up to limit children in name order
+     */
+    public List<FileSystemItem> getItemsByNameAfter(String name, int limit) {
+        indexNameOrder();
+        Collection<FileSystemItem> tail = name == null ? itemsInNameOrder.values()
+                : itemsInNameOrder.tailMap(name, false).values();
+        List<FileSystemItem> page = new ArrayList<>(Math.min(limit, items.size()));
+        for (Iterator<FileSystemItem> iterator = tail.iterator(); page.size() < limit && iterator.hasNext(); ) {
+            page.add(iterator.next());
+        }
+        return page;
     }
-}
 
+    /**
+     * @return true once the name-sorted view exists, after which name-ordered reads do not modify this folder
+     */
+    public boolean isNameOrderIndexed() {
+        return itemsInNameOrder != null;
+    }
+
+    /**
+     * Builds the name-sorted view of the children if it does not exist yet.
+     */
+    public void indexNameOrder() {
+        if (itemsInNameOrder == null) {
+            itemsInNameOrder = new TreeMap<>(items);
+        }
+    }
+
+    /**
+     * @return file and folder counts, total file bytes and max depth of everything below this folder
+     * @throws IllegalStateException if the folder does not track its figures
+     */
+    public FolderStats getStats() {
+        if (!statsTracked) {
+            throw new IllegalStateException("Folder statistics are not tracked: " + getName());
+        }
+        return new FolderStats(descendantFiles, descendantFolders, descendantBytes, maxDepth);
+    }
+
+    public boolean isStatsTracked() {
+        return statsTracked;
+    }
+
+    /**
+     * Computes the aggregate figures of this folder and every folder below it, bottom-up in a
+     * single pass, and keeps them up to date from then on. Folders added later inherit tracking
+     * from their parent.
+     */
+    public void trackStats() {
+        List<Folder> folders = new ArrayList<>();
+        folders.add(this);
+        for (int i = 0; i < folders.size(); i++) {
+            for (FileSystemItem item : folders.get(i).getItems()) {
+                if (item.isFolder()) {
+                    folders.add((Folder) item);
+                }
+            }
+        }
+        // Every folder comes after its parent, so walking backwards finishes children first
+        for (int i = folders.size() - 1; i >= 0; i--) {
+            Folder folder = folders.get(i);
+            folder.statsTracked = true;
+            folder.descendantFiles = 0;
+            folder.descendantFolders = 0;
+            folder.descendantBytes = 0;
+            for (FileSystemItem item : folder.getItems()) {
+                if (item.isFolder()) {
+                    Folder subfolder = (Folder) item;
+                    folder.descendantFiles += subfolder.descendantFiles;
+                    folder.descendantFolders += subfolder.descendantFolders + 1;
+                    folder.descendantBytes += subfolder.descendantBytes;
+                } else {
+                    folder.descendantFiles++;
+                    folder.descendantBytes += ((File) item).getSize();
+                }
+            }
+            folder.rescanDepth();
+        }
+    }
+
+    // Applies the figures of a child that was just added (sign 1) or removed (sign -1) to this folder and its ancestors
+    private void updateStats(FileSystemItem item, int sign) {
+        long files = item.isFolder() ? ((Folder) item).descendantFiles : 1;
+        long folders = item.isFolder() ? ((Folder) item).descendantFolders + 1 : 0;
+        long bytes = item.isFolder() ? ((Folder) item).descendantBytes : ((File) item).getSize();
+        int reach = depthReachedThrough(item);
+        int removedReach = sign < 0 ? reach : 0;
+        int addedReach = sign > 0 ? reach : 0;
+        for (Folder folder = this; folder != null; folder = folder.parent) {
+            folder.descendantFiles += sign * files;
+            folder.descendantFolders += sign * folders;
+            folder.descendantBytes += sign * bytes;
+            if (removedReach != addedReach) {
+                // Depths only change up to the first folder whose own depth stays the same
+                int oldDepth = folder.maxDepth;
+                folder.replaceChildReach(removedReach, addedReach);
+                removedReach = oldDepth + 1;
+                addedReach = folder.maxDepth + 1;
+            }
+        }
+    }
+
+    // A child's reach changes from removedReach to addedReach; 0 stands for no child
+    private void replaceChildReach(int removedReach, int addedReach) {
+        if (addedReach > maxDepth) {
+            maxDepth = addedReach;
+            deepestChildren = 1;
+        } else if (addedReach == maxDepth && addedReach > 0) {
+            deepestChildren++;
+        }
+        if (removedReach == maxDepth && removedReach > 0 && --deepestChildren == 0) {
+            rescanDepth();
+        }
+    }
+
+    private void rescanDepth() {
+        maxDepth = 0;
+        deepestChildren = 0;
+        for (FileSystemItem item : getItems()) {
+            replaceChildReach(0, depthReachedThrough(item));
+        }
+    }
+
+    // How deep below this folder the child's subtree reaches
+    private static int depthReachedThrough(FileSystemItem child) {
+        return child.isFolder() ? ((Folder) child).maxDepth + 1 : 1;
+    }
+
+    private void compactSlots() {
+        int live = 0;
+        for (int i = 0; i < slotCount; i++) {
+            if (slots[i] != null) {
+                slots[live] = slots[i];
+                slotKeys[live++] = slotKeys[i];
+            }
+        }
+        Arrays.fill(slots, live, slotCount, null);
+        slotCount = live;
+    }
+
+    // Walks the slots from a position, skipping the ones left empty by removed children
+    private final class SlotIterator implements Iterator<FileSystemItem> {
+        private int position;
+
+        SlotIterator(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position < slotCount && slots[position] == null) {
+                position++;
+            }
+            return position < slotCount;
+        }
+
+        @Override
+        public FileSystemItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return slots[position++];
+        }
+    }
+}
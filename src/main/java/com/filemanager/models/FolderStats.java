@@ -0,0 +1,71 @@
+package com.filemanager.models;
+
+/**
+ * Aggregate figures for everything below a folder, not counting the folder itself.
+ */
+public class FolderStats {
+    private final long fileCount;
+    private final long folderCount;
+    private final long totalBytes;
+    private final int maxDepth;
+
+    public FolderStats(long fileCount, long folderCount, long totalBytes, int maxDepth) {
+        this.fileCount = fileCount;
+        this.folderCount = folderCount;
+        this.totalBytes = totalBytes;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return the number of files anywhere below the folder
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return the number of folders anywhere below the folder
+     */
+    public long getFolderCount() {
+        return folderCount;
+    }
+
+    /**
+     * @return the combined size in bytes of the files below the folder
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return how many levels the deepest item sits below the folder: 0 for an empty folder,
+     *         1 if the folder only holds items directly
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FolderStats)) {
+            return false;
+        }
+        FolderStats stats = (FolderStats) other;
+        return fileCount == stats.fileCount && folderCount == stats.folderCount
+                && totalBytes == stats.totalBytes && maxDepth == stats.maxDepth;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fileCount) * 961 + Long.hashCode(folderCount) * 31 + Long.hashCode(totalBytes) * 7 + maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "FolderStats{files=" + fileCount + ", folders=" + folderCount + ", bytes=" + totalBytes
+                + ", maxDepth=" + maxDepth + "}";
+    }
+}
@@ -0,0 +1,428 @@
+package com.filemanager.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+import com.filemanager.service.FileSystemManager;
+import com.filemanager.service.FileSystemManagerImpl;
+import com.filemanager.service.FileSystemWatcher;
+import com.filemanager.service.WatchSubscription;
+
+/**
+ * {@link FileSystemManager} that keeps a {@link FileSystemManagerImpl} tree on disk, so it
+ * survives a restart.
+ * <p>
+ * Every add or move that changes the tree is appended to a {@link WriteAheadLog} and is durable
+ * by the time the call returns. Writers apply their change under a short exclusive lock and wait
+ * for the fsync after releasing it, so concurrent writers share fsyncs through group commit; a
+ * batch is logged as a group and made durable with a single fsync. Failed operations change
+ * nothing and are not logged.
+ * <p>
+ * Every {@code checkpointInterval} records, and on {@link #checkpoint()}, the whole tree is
+ * written as a compact binary snapshot and the log starts a new segment, after which older
+ * snapshots and segments are deleted. Opening a directory loads the latest snapshot and
+ * replays only the log records written after it; a record torn by a crash is cut off.
+ * <p>
+ * The data directory holds {@code snapshot-<sequence>.bin} files, each covering the records
+ * below its sequence number, and {@code wal-<sequence>.log} segments, each starting at its
+ * sequence number. Reads and writes may be called from any thread; the lazy iterators read the
+ * live tree, as with {@link FileSystemManagerImpl}, and must not be used while writes are in
+ * progress. After an I/O error the in-memory tree may be ahead of the log, so the manager
+ * rejects further writes and must be reopened.
+ */
+public class DurableFileSystemManager implements FileSystemManager, Closeable {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int checkpointInterval;
+    private final FileSystemManagerImpl delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private WriteAheadLog log;
+    private long recordsSinceCheckpoint;
+    private volatile boolean failed;
+
+    private DurableFileSystemManager(Path directory, int checkpointInterval, FileSystemManagerImpl delegate,
+                                     WriteAheadLog log) {
+        this.directory = directory;
+        this.checkpointInterval = checkpointInterval;
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    /**
+     * Opens the tree stored in a directory, creating an empty one if the directory holds none.
+     *
+     * @param directory the data directory, created if missing
+     * @param rootName the name of the root folder of a new tree; ignored if the directory already holds one
+     * @return the recovered manager
+     * @throws IOException if the directory cannot be read or a snapshot is corrupt
+     */
+    public static DurableFileSystemManager open(Path directory, String rootName) throws IOException {
+        return open(directory, rootName, false, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param directory the data directory, created if missing
+     * @param rootName the name of the root folder of a new tree; ignored if the directory already holds one
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     * @param checkpointInterval the number of logged records after which a snapshot is written
+     * @return the recovered manager
+     * @throws IOException if the directory cannot be read or a snapshot is corrupt
+     */
+    public static DurableFileSystemManager open(Path directory, String rootName, boolean substringIndexEnabled,
+                                                int checkpointInterval) throws IOException {
+        return open(directory, rootName, substringIndexEnabled, false, checkpointInterval);
+    }
+
+    /**
+     * @param directory the data directory, created if missing
+     * @param rootName the name of the root folder of a new tree; ignored if the directory already holds one
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     * @param folderStatsEnabled true to keep every folder's aggregate figures up to date, so
+     *        {@link #getFolderStats} answers in O(1)
+     * @param checkpointInterval the number of logged records after which a snapshot is written
+     * @return the recovered manager
+     * @throws IOException if the directory cannot be read or a snapshot is corrupt
+     */
+    public static DurableFileSystemManager open(Path directory, String rootName, boolean substringIndexEnabled,
+                                                boolean folderStatsEnabled, int checkpointInterval) throws IOException {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        TreeMap<Long, Path> segments = listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        // Start from the latest snapshot, then replay the records it does not cover
+        long snapshotSequence = snapshots.isEmpty() ? 0L : snapshots.lastKey();
+        FileSystemManagerImpl delegate;
+        if (snapshots.isEmpty()) {
+            // A new tree starts with an empty snapshot, which records the root's name
+            delegate = new FileSystemManagerImpl(rootName, substringIndexEnabled, folderStatsEnabled);
+            writeSnapshot(directory, delegate, snapshotSequence);
+        } else {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(snapshots.lastEntry().getValue())))) {
+                delegate = FileSystemManagerImpl.readSnapshot(in, substringIndexEnabled, folderStatsEnabled);
+            }
+        }
+        List<FileSystemOperation> tail = new ArrayList<>();
+        long[] nextSequence = {snapshotSequence};
+        for (Path segment : segments.values()) {
+            long segmentEnd = WriteAheadLog.replay(segment, (sequence, operation) -> {
+                if (sequence == nextSequence[0]) {
+                    tail.add(operation);
+                    nextSequence[0]++;
+                }
+            });
+            if (segmentEnd > nextSequence[0]) {
+                break; // Records missing between the snapshot and this segment; nothing later can apply
+            }
+        }
+        delegate.applyBatch(tail);
+        for (Path unreachable : segments.tailMap(nextSequence[0], true).values()) {
+            Files.delete(unreachable); // Empty, torn, or past a gap; the new segment takes over from here
+        }
+
+        WriteAheadLog log = WriteAheadLog.create(segmentPath(directory, nextSequence[0]), nextSequence[0]);
+        DurableFileSystemManager fileSystemManager = new DurableFileSystemManager(directory, checkpointInterval,
+                delegate, log);
+        fileSystemManager.recordsSinceCheckpoint = nextSequence[0] - snapshotSequence;
+        return fileSystemManager;
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        applyBatch(Collections.singletonList(FileSystemOperation.add(parentFolderName, name, isFolder)));
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        applyBatch(Collections.singletonList(FileSystemOperation.move(sourceName, destinationFolderName)));
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        List<OperationStatus> results;
+        WriteAheadLog batchLog;
+        long lastSequence = -1;
+        boolean checkpointDue;
+        lock.writeLock().lock();
+        try {
+            checkWritable();
+            results = delegate.applyBatch(operations);
+            batchLog = log;
+            for (int i = 0; i < operations.size(); i++) {
+                if (results.get(i) == OperationStatus.APPLIED) {
+                    lastSequence = batchLog.append(operations.get(i));
+                    recordsSinceCheckpoint++;
+                }
+            }
+            checkpointDue = recordsSinceCheckpoint >= checkpointInterval;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Wait for the fsync outside the lock, so other writers can join the same group commit
+        if (lastSequence >= 0) {
+            try {
+                batchLog.sync(lastSequence);
+            } catch (IOException e) {
+                failed = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (checkpointDue) {
+            checkpoint(false);
+        }
+        return results;
+    }
+
+    /**
+     * Writes a snapshot of the current tree, starts a new log segment and deletes the snapshots
+     * and segments it supersedes. Writers are blocked while the snapshot is written.
+     *
+     * @throws UncheckedIOException if the snapshot or the new segment cannot be written
+     */
+    public void checkpoint() {
+        checkpoint(true);
+    }
+
+    private void checkpoint(boolean forced) {
+        lock.writeLock().lock();
+        try {
+            checkWritable();
+            if (!forced && recordsSinceCheckpoint < checkpointInterval) {
+                return; // Another writer got here first
+            }
+            log.close();
+            long sequence = log.nextSequence();
+            writeSnapshot(directory, delegate, sequence);
+            log = WriteAheadLog.create(segmentPath(directory, sequence), sequence);
+            recordsSinceCheckpoint = 0;
+            deleteBefore(sequence);
+        } catch (IOException e) {
+            failed = true;
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes every logged record durable and closes the log. The manager must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            failed = true;
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (failed) {
+            throw new IllegalStateException("The manager is closed or hit an I/O error; reopen it");
+        }
+    }
+
+    // Writes to a temporary file and renames it, so a snapshot file is either complete or absent
+    private static void writeSnapshot(Path directory, FileSystemManagerImpl delegate, long sequence) throws IOException {
+        Path snapshot = directory.resolve(fileName(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            delegate.writeSnapshot(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.forceDirectory(directory); // Make the rename durable before older files are deleted
+    }
+
+    private void deleteBefore(long sequence) throws IOException {
+        for (Path stale : listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(sequence).values()) {
+            Files.deleteIfExists(stale);
+        }
+        for (Path stale : listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(sequence).values()) {
+            Files.deleteIfExists(stale);
+        }
+    }
+
+    private static TreeMap<Long, Path> listFiles(Path directory, String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), entry);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return files;
+    }
+
+    private static Path segmentPath(Path directory, long firstSequence) {
+        return directory.resolve(fileName(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        lock.readLock().lock();
+        try {
+            return delegate.getFolderStats(folderName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        lock.readLock().lock();
+        try {
+            return delegate.watch(folderName, recursive, watcher);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        lock.readLock().lock();
+        try {
+            return delegate.listContents(folderName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        // Name-order pages may build the folder's sorted view, which modifies the folder
+        lock.writeLock().lock();
+        try {
+            return delegate.listContents(folderName, cursor, limit, sortOrder);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        lock.readLock().lock();
+        try {
+            return delegate.listDirectoryStructure();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        lock.readLock().lock();
+        try {
+            return delegate.listDirectoryStructureInParallel(parallelism);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return delegate.iterateDirectoryStructure();
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        lock.readLock().lock();
+        try {
+            delegate.writeDirectoryStructure(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        lock.readLock().lock();
+        try {
+            return delegate.searchFileExactMatch(folderName, fileName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        lock.readLock().lock();
+        try {
+            return delegate.searchFileLikeMatch(folderName, pattern);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        lock.readLock().lock();
+        try {
+            return delegate.searchFileLikeMatchInParallel(folderName, pattern, parallelism);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        return delegate.iterateFileLikeMatch(folderName, pattern);
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        lock.readLock().lock();
+        try {
+            return delegate.searchFiles(folderName, query, searchType, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
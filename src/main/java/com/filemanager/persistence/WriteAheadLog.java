@@ -0,0 +1,268 @@
+package com.filemanager.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.filemanager.enums.OperationType;
+import com.filemanager.models.FileSystemOperation;
+
+/**
+ * One append-only segment of the write-ahead log, holding the adds and moves applied since the
+ * segment was started.
+ * <p>
+ * Every record carries a sequence number, one higher than the record before it, and a CRC32 of
+ * its contents, so recovery can tell where a write torn by a crash begins. Appending only
+ * copies the record into an in-memory buffer. {@link #sync} makes records durable with group
+ * commit: the first caller to find its record not yet on disk writes everything buffered so far
+ * and forces it with a single fsync, while callers whose records were covered by that fsync
+ * return without touching the disk. Under concurrent writers, one fsync thus commits a whole
+ * group of records. Records leave the buffer only once their fsync has succeeded; after a failed
+ * write or fsync, every later sync fails too, since what reached the disk is unknown.
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final int FRAME_BYTES = 8; // Payload length and CRC32; the payload starts with the sequence number
+
+    private final FileChannel channel;
+    private final Object syncLock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private long nextSequence;
+    private volatile long durableSequence; // Every record below this sequence number is on disk
+    private IOException syncFailure; // Guarded by syncLock
+
+    private WriteAheadLog(FileChannel channel, long firstSequence) {
+        this.channel = channel;
+        this.nextSequence = firstSequence;
+        this.durableSequence = firstSequence;
+    }
+
+    /**
+     * Creates a new, empty segment.
+     *
+     * @param segment the segment file, which must not exist yet
+     * @param firstSequence the sequence number of the segment's first record
+     * @return the open segment
+     * @throws IOException if the file cannot be created
+     */
+    public static WriteAheadLog create(Path segment, long firstSequence) throws IOException {
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            forceDirectory(segment.toAbsolutePath().getParent()); // The new file's entry must survive a crash too
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new WriteAheadLog(channel, firstSequence);
+    }
+
+    /**
+     * Forces a directory's entries to disk, so files created in or renamed into it survive a crash.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be opened or forced
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the records of a segment in order, stopping at the first one that is incomplete or
+     * fails its checksum, and cuts the segment off there.
+     *
+     * @param segment the segment file
+     * @param consumer receives each intact record
+     * @return the sequence number following the last intact record, or -1 if there is none
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(Path segment, RecordConsumer consumer) throws IOException {
+        long validBytes = 0;
+        long lastSequence = -1;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            byte[] payload;
+            while ((payload = readPayload(in, channel.size() - validBytes)) != null) {
+                long sequence = ByteBuffer.wrap(payload, 0, Long.BYTES).getLong();
+                if (lastSequence >= 0 && sequence != lastSequence + 1) {
+                    break; // A gap means the rest of the segment was never acknowledged
+                }
+                consumer.accept(sequence, decode(payload));
+                lastSequence = sequence;
+                validBytes += FRAME_BYTES + payload.length;
+            }
+            if (validBytes < channel.size()) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+        return lastSequence < 0 ? -1 : lastSequence + 1;
+    }
+
+    /**
+     * Buffers a record; it is not durable until {@link #sync} covers its sequence number.
+     *
+     * @param operation the applied add or move
+     * @return the record's sequence number
+     */
+    public synchronized long append(FileSystemOperation operation) {
+        long sequence = nextSequence++;
+        try {
+            byte[] payload = encode(sequence, operation);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            pendingOut.writeInt(payload.length);
+            pendingOut.writeInt((int) crc.getValue());
+            pendingOut.write(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory buffer failed", e); // ByteArrayOutputStream never throws
+        }
+        return sequence;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number, and every record before it, is on disk.
+     *
+     * @param sequence the sequence number returned by {@link #append}
+     * @throws IOException if writing or forcing the segment fails, now or in an earlier sync
+     */
+    public void sync(long sequence) throws IOException {
+        if (sequence < durableSequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (sequence < durableSequence) {
+                return; // Another caller's fsync covered this record while we waited
+            }
+            if (syncFailure != null) {
+                throw new IOException("An earlier group commit failed; the record may not be on disk", syncFailure);
+            }
+            byte[] group;
+            long groupEnd;
+            synchronized (this) {
+                group = pending.toByteArray();
+                groupEnd = nextSequence;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(group);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                syncFailure = e;
+                throw e;
+            }
+            synchronized (this) {
+                // Keep whatever was appended while the group was being written
+                byte[] buffered = pending.toByteArray();
+                pending.reset();
+                pending.write(buffered, group.length, buffered.length - group.length);
+            }
+            durableSequence = groupEnd;
+        }
+    }
+
+    /**
+     * @return the sequence number the next appended record will get
+     */
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Makes every buffered record durable and closes the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync(nextSequence() - 1);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static byte[] readPayload(DataInputStream in, long availableBytes) throws IOException {
+        if (availableBytes < FRAME_BYTES + Long.BYTES) {
+            return null;
+        }
+        try {
+            int payloadLength = in.readInt();
+            int checksum = in.readInt();
+            if (payloadLength < Long.BYTES || payloadLength > availableBytes - FRAME_BYTES) {
+                return null; // Torn or corrupt header
+            }
+            byte[] payload = new byte[payloadLength];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Payload layout: sequence, type, folder flag, name, folder name, then a file size if non-zero
+    private static byte[] encode(long sequence, FileSystemOperation operation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(sequence);
+        out.writeByte(operation.getType().ordinal());
+        out.writeBoolean(operation.isFolder());
+        writeString(out, operation.getName());
+        writeString(out, operation.getFolderName());
+        if (operation.getSize() != 0) {
+            out.writeLong(operation.getSize());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static FileSystemOperation decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, Long.BYTES, payload.length - Long.BYTES));
+        int type = in.readUnsignedByte();
+        boolean isFolder = in.readBoolean();
+        String name = readString(in);
+        String folderName = readString(in);
+        if (type == OperationType.ADD.ordinal()) {
+            if (!isFolder && in.available() >= Long.BYTES) {
+                return FileSystemOperation.addFile(folderName, name, in.readLong());
+            }
+            return FileSystemOperation.add(folderName, name, isFolder);
+        }
+        if (type == OperationType.MOVE.ordinal()) {
+            return FileSystemOperation.move(name, folderName);
+        }
+        throw new IOException("Unknown record type: " + type);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives the records of a segment during replay.
+     */
+    public interface RecordConsumer {
+        void accept(long sequence, FileSystemOperation operation) throws IOException;
+    }
+}
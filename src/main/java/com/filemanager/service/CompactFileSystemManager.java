@@ -0,0 +1,527 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import com.filemanager.collections.LongIntHashMap;
+import com.filemanager.collections.NamePool;
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
+/**
+ * Memory-lean {@link FileSystemManager} that stores the tree in parallel primitive arrays
+ * instead of one object per item.
+ * <p>
+ * An item is an int id indexing arrays of parent, first and last child, next and previous
+ * sibling, name id, order key and flags. Children form a doubly linked sibling list in
+ * insertion order, so adds append and moves unlink in O(1). Names live once each, UTF-8 encoded,
+ * in a shared {@link NamePool}. A single primitive hash table maps (folder, name) pairs to child
+ * ids for duplicate checks and path lookups, and the owner of each name under the
+ * first-added-wins policy is kept in an array indexed by name id. An item costs a few dozen
+ * bytes and the collector has only a handful of large arrays to trace, however big the tree.
+ * <p>
+ * Results are the same as those of {@link FileSystemManagerImpl}, except for performance:
+ * searches walk the subtree, insertion-order pages skip to the cursor along the sibling list,
+ * and name-order pages select their entries in one pass over the folder, as snapshots do.
+ * Iterators read the live tree; the tree must not be modified while one is in use. Watch events
+ * are delivered on separate threads, so watchers must not call back into this manager unless
+ * the caller synchronizes access to it.
+ */
+public class CompactFileSystemManager implements FileSystemManager {
+    private static final int NONE = -1;
+    private static final byte FOLDER_FLAG = 1;
+    private static final int ROOT = 0;
+
+    private final NamePool names = new NamePool();
+    private final LongIntHashMap childrenByName = new LongIntHashMap();
+    private int[] ownersByNameId = new int[16];
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] lastChildren;
+    private int[] nextSiblings;
+    private int[] previousSiblings;
+    private int[] nameIds;
+    private int[] orderKeys;
+    private int[] nextOrderKeys;
+    private byte[] flags;
+    private long[] sizes; // File sizes, allocated with the first file that has one
+    private int itemCount;
+    private final WatchRegistry<Integer> watches = new WatchRegistry<>(
+            folder -> parents[folder] == NONE ? null : parents[folder], this::pathOf);
+    private final TreeShape<Integer> treeShape = new TreeShape<Integer>() {
+        @Override
+        public Iterator<Integer> children(Integer folder) {
+            return childIds(folder);
+        }
+
+        @Override
+        public String name(Integer node) {
+            return nameOf(node);
+        }
+
+        @Override
+        public boolean isFolder(Integer node) {
+            return isFolderItem(node);
+        }
+    };
+
+    public CompactFileSystemManager(String rootName) {
+        allocate(16);
+        Arrays.fill(ownersByNameId, NONE);
+        newItem(rootName, true, NONE);
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        add(searchFolder(parentFolderName), name, isFolder, 0L);
+    }
+
+    private OperationStatus add(int parentDir, String name, boolean isFolder, long size) {
+        if (parentDir == NONE) {
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        int nameId = names.find(name);
+        if (nameId != NONE && childrenByName.get(childKey(parentDir, nameId)) != NONE) {
+            return OperationStatus.NAME_TAKEN;
+        }
+        int item = newItem(name, isFolder, parentDir);
+        if (size != 0) {
+            if (sizes == null) {
+                sizes = new long[parents.length];
+            }
+            sizes[item] = size;
+        }
+        watches.added(parentDir, name, isFolder);
+        return OperationStatus.APPLIED;
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        move(locateItem(sourceName), searchFolder(destinationFolderName));
+    }
+
+    private OperationStatus move(int sourceItem, int targetFolder) {
+        if (sourceItem == NONE) {
+            return OperationStatus.SOURCE_NOT_FOUND; // Source does not exist
+        }
+        int currentParentDir = parents[sourceItem];
+        if (currentParentDir == NONE) {
+            return OperationStatus.ROOT_NOT_MOVABLE; // The root cannot be moved
+        }
+        if (targetFolder == NONE) {
+            return OperationStatus.TARGET_NOT_FOUND; // Target directory does not exist
+        }
+        for (int ancestor = targetFolder; ancestor != NONE; ancestor = parents[ancestor]) {
+            if (ancestor == sourceItem) {
+                return OperationStatus.TARGET_INSIDE_SOURCE; // A folder cannot be moved into itself or one of its descendants
+            }
+        }
+        if (targetFolder == currentParentDir) {
+            return OperationStatus.ALREADY_IN_TARGET;
+        }
+        if (childrenByName.get(childKey(targetFolder, nameIds[sourceItem])) != NONE) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in the target
+        }
+
+        unlink(sourceItem);
+        link(sourceItem, targetFolder);
+        watches.moved(currentParentDir, targetFolder, nameOf(sourceItem), isFolderItem(sourceItem));
+        return OperationStatus.APPLIED;
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        // Grow the arrays once for all the adds instead of doubling along the way
+        int adds = 0;
+        for (FileSystemOperation operation : operations) {
+            if (operation.getType() == OperationType.ADD) {
+                adds++;
+            }
+        }
+        if (itemCount + adds > parents.length) {
+            allocate(itemCount + adds);
+        }
+        childrenByName.ensureCapacity(adds);
+
+        List<OperationStatus> results = new ArrayList<>(operations.size());
+        for (FileSystemOperation operation : operations) {
+            results.add(operation.getType() == OperationType.ADD
+                    ? add(searchFolder(operation.getFolderName()), operation.getName(), operation.isFolder(), operation.getSize())
+                    : move(locateItem(operation.getName()), searchFolder(operation.getFolderName())));
+        }
+        return results;
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return null; // Directory not found
+        }
+        return TreeTraversal.folderStats(treeShape, directory, item -> sizes == null ? 0L : sizes[item]);
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        int directory = searchFolder(folderName);
+        return directory == NONE ? null : watches.subscribe(directory, recursive, watcher);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return Collections.emptyList(); // Directory not found
+        }
+
+        List<String> items = new ArrayList<>();
+        for (int child = firstChildren[directory]; child != NONE; child = nextSiblings[child]) {
+            items.add(nameOf(child));
+        }
+        return items;
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return ContentPage.empty(); // Directory not found
+        }
+        return sortOrder == SortOrder.NAME
+                ? pageByName(directory, PageCursor.nameOf(cursor), limit)
+                : pageByInsertion(directory, PageCursor.orderKeyOf(cursor), limit);
+    }
+
+    private ContentPage pageByInsertion(int directory, long afterKey, int limit) {
+        // Order keys grow along the sibling list, so the page starts at the first larger key
+        int child = firstChildren[directory];
+        while (child != NONE && orderKeys[child] <= afterKey) {
+            child = nextSiblings[child];
+        }
+        List<String> page = new ArrayList<>();
+        for (; child != NONE && page.size() < limit; child = nextSiblings[child]) {
+            page.add(nameOf(child));
+            afterKey = orderKeys[child];
+        }
+        return new ContentPage(page, child == NONE ? null : PageCursor.afterOrderKey(afterKey));
+    }
+
+    private ContentPage pageByName(int directory, String afterName, int limit) {
+        // Keep the limit + 1 smallest names past the cursor; the extra one tells whether a page follows
+        PriorityQueue<String> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int child = firstChildren[directory]; child != NONE; child = nextSiblings[child]) {
+            String name = nameOf(child);
+            if (afterName == null || name.compareTo(afterName) > 0) {
+                smallest.offer(name);
+                if (smallest.size() > PageCursor.lookAhead(limit)) {
+                    smallest.poll();
+                }
+            }
+        }
+        List<String> page = new ArrayList<>(smallest);
+        Collections.sort(page);
+        if (page.size() <= limit) {
+            return new ContentPage(page, null);
+        }
+        page = new ArrayList<>(page.subList(0, limit));
+        return new ContentPage(page, PageCursor.afterName(page.get(limit - 1)));
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        return TreeTraversal.drain(iterateDirectoryStructure());
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return ParallelTraversal.directoryStructure(treeShape, ROOT, parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(treeShape, ROOT);
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        TreeTraversal.writeDirectoryStructure(treeShape, ROOT, out);
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return null; // Folder does not exist
+        }
+
+        // Same-case names resolve through the child table; otherwise compare case-insensitively
+        int sameCase = childNamed(directory, fileName);
+        if (sameCase != NONE && !isFolderItem(sameCase)) {
+            return fileName;
+        }
+        for (int child = firstChildren[directory]; child != NONE; child = nextSiblings[child]) {
+            if (!isFolderItem(child)) {
+                String name = nameOf(child);
+                if (name.equalsIgnoreCase(fileName)) {
+                    return name; // Found exact match
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return TreeTraversal.drain(iterateFileLikeMatch(folderName, pattern));
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return Collections.emptyList(); // Folder not found
+        }
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return ParallelTraversal.matchingFiles(treeShape, directory, name -> SortedNameIndex.fold(name).contains(foldedPattern), parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return matchingFiles(folderName, name -> SortedNameIndex.fold(name).contains(foldedPattern));
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern namePattern = NamePattern.compile(query, searchType);
+        return TreeTraversal.firstInNameOrder(matchingFiles(folderName, namePattern::matches), limit);
+    }
+
+    // Walks the subtree in pre-order through the sibling links, so no stack is needed
+    private Iterator<String> matchingFiles(String folderName, Predicate<String> nameFilter) {
+        int directory = searchFolder(folderName);
+        if (directory == NONE) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+        TraversalCounter counter = TraversalCounter.current();
+        return new Iterator<String>() {
+            private int item = directory;
+            private String next = advance();
+
+            private String advance() {
+                while ((item = successor(directory, item)) != NONE) {
+                    counter.visit();
+                    if (!isFolderItem(item)) {
+                        String name = nameOf(item);
+                        if (nameFilter.test(name)) {
+                            return name;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    // The item after the given one in a pre-order walk of the start folder's subtree
+    private int successor(int start, int item) {
+        if (firstChildren[item] != NONE) {
+            return firstChildren[item];
+        }
+        for (; item != start; item = parents[item]) {
+            if (nextSiblings[item] != NONE) {
+                return nextSiblings[item];
+            }
+        }
+        return NONE;
+    }
+
+    private Iterator<Integer> childIds(int folder) {
+        return new Iterator<Integer>() {
+            private int child = firstChildren[folder];
+
+            @Override
+            public boolean hasNext() {
+                return child != NONE;
+            }
+
+            @Override
+            public Integer next() {
+                if (child == NONE) {
+                    throw new NoSuchElementException();
+                }
+                int current = child;
+                child = nextSiblings[child];
+                return current;
+            }
+        };
+    }
+
+    private int newItem(String name, boolean isFolder, int parentDir) {
+        if (itemCount == parents.length) {
+            allocate(itemCount * 2);
+        }
+        int item = itemCount++;
+        int nameId = names.intern(name);
+        if (nameId == ownersByNameId.length) {
+            int oldLength = ownersByNameId.length;
+            ownersByNameId = Arrays.copyOf(ownersByNameId, oldLength * 2);
+            Arrays.fill(ownersByNameId, oldLength, ownersByNameId.length, NONE);
+        }
+        if (ownersByNameId[nameId] == NONE) {
+            ownersByNameId[nameId] = item; // First item with a given name owns it
+        }
+        nameIds[item] = nameId;
+        flags[item] = isFolder ? FOLDER_FLAG : 0;
+        firstChildren[item] = NONE;
+        lastChildren[item] = NONE;
+        if (parentDir == NONE) {
+            parents[item] = NONE;
+            nextSiblings[item] = NONE;
+            previousSiblings[item] = NONE;
+        } else {
+            link(item, parentDir);
+        }
+        return item;
+    }
+
+    // Appends the item to the end of the folder's children
+    private void link(int item, int folder) {
+        parents[item] = folder;
+        orderKeys[item] = nextOrderKeys[folder]++;
+        previousSiblings[item] = lastChildren[folder];
+        nextSiblings[item] = NONE;
+        if (lastChildren[folder] == NONE) {
+            firstChildren[folder] = item;
+        } else {
+            nextSiblings[lastChildren[folder]] = item;
+        }
+        lastChildren[folder] = item;
+        childrenByName.put(childKey(folder, nameIds[item]), item);
+    }
+
+    private void unlink(int item) {
+        int folder = parents[item];
+        if (previousSiblings[item] == NONE) {
+            firstChildren[folder] = nextSiblings[item];
+        } else {
+            nextSiblings[previousSiblings[item]] = nextSiblings[item];
+        }
+        if (nextSiblings[item] == NONE) {
+            lastChildren[folder] = previousSiblings[item];
+        } else {
+            previousSiblings[nextSiblings[item]] = previousSiblings[item];
+        }
+        childrenByName.remove(childKey(folder, nameIds[item]));
+        parents[item] = NONE;
+    }
+
+    private void allocate(int capacity) {
+        parents = grow(parents, capacity);
+        firstChildren = grow(firstChildren, capacity);
+        lastChildren = grow(lastChildren, capacity);
+        nextSiblings = grow(nextSiblings, capacity);
+        previousSiblings = grow(previousSiblings, capacity);
+        nameIds = grow(nameIds, capacity);
+        orderKeys = grow(orderKeys, capacity);
+        nextOrderKeys = grow(nextOrderKeys, capacity);
+        flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+        if (sizes != null) {
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static long childKey(int folder, int nameId) {
+        return ((long) folder << 32) | nameId;
+    }
+
+    private boolean isFolderItem(int item) {
+        return (flags[item] & FOLDER_FLAG) != 0;
+    }
+
+    private String nameOf(int item) {
+        return names.get(nameIds[item]);
+    }
+
+    private String pathOf(int item) {
+        if (parents[item] == NONE) {
+            return FileSystemPaths.ROOT;
+        }
+        StringBuilder path = new StringBuilder();
+        for (; parents[item] != NONE; item = parents[item]) {
+            path.insert(0, nameOf(item)).insert(0, FileSystemPaths.SEPARATOR);
+        }
+        return path.toString();
+    }
+
+    private int childNamed(int folder, String name) {
+        int nameId = names.find(name);
+        return nameId == NONE ? NONE : childrenByName.get(childKey(folder, nameId));
+    }
+
+    // Helper function to locate a folder by name
+    private int searchFolder(String folderName) {
+        int item = locateItem(folderName);
+        return item != NONE && isFolderItem(item) ? item : NONE;
+    }
+
+    // Helper function to locate a file or folder by name or absolute path
+    private int locateItem(String name) {
+        if (!FileSystemPaths.isPath(name)) {
+            int nameId = names.find(name);
+            return nameId == NONE ? NONE : ownersByNameId[nameId];
+        }
+        String path = FileSystemPaths.normalize(name);
+        int item = ROOT;
+        for (int separator = 0; separator < path.length() && !path.equals(FileSystemPaths.ROOT); ) {
+            int nextSeparator = path.indexOf(FileSystemPaths.SEPARATOR, separator + 1);
+            if (nextSeparator < 0) {
+                nextSeparator = path.length();
+            }
+            item = isFolderItem(item) ? childNamed(item, path.substring(separator + 1, nextSeparator)) : NONE;
+            if (item == NONE) {
+                return NONE;
+            }
+            separator = nextSeparator;
+        }
+        return item;
+    }
+}
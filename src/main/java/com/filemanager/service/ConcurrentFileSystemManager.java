@@ -0,0 +1,564 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.File;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+import com.filemanager.models.Folder;
+
+/**
+ * Thread-safe {@link FileSystemManager} that lets reads and adds proceed in parallel.
+ * <p>
+ * Each folder's children are guarded by one of a fixed set of striped locks, chosen by the
+ * folder's identity. Adds and single-folder reads only take the stripe of the folder they touch,
+ * so work on different folders does not contend. A tree-wide topology lock separates moves from
+ * full traversals: moves take it exclusively, which also serializes them so that two concurrent
+ * moves cannot build a cycle, and then lock the stripes of both endpoint folders in stripe order
+ * to stay deadlock-free. Full traversals hold it and then every stripe shared, in stripe order,
+ * for their whole run, so no add or move lands while they run and each one sees the tree as it
+ * was at a single instant.
+ * <p>
+ * The lazy iterators cannot hold a lock on behalf of their caller, so they are weakly consistent,
+ * like those of {@link ConcurrentHashMap}. They never fail or see a half-applied change, but an
+ * item moved while they run may be reported twice or not at all.
+ * <p>
+ * A batch takes the topology lock and every stripe exclusively, so it is applied as one atomic
+ * step; inside it, lookups read the folders directly since all their locks are already held.
+ * <p>
+ * When enabled, the folders' aggregate figures run up the parent chain across stripes, so they
+ * are updated and read under one small monitor of their own, held only for the O(depth) update.
+ * Without them, folder statistics are counted by a traversal.
+ * <p>
+ * Watch events for a move are reported under the topology lock. Those for an add are reported
+ * before the folder's stripe is released, under the topology lock held shared so that the
+ * parent chain stands still while watches are matched; if nothing is watched, adds skip that lock.
+ * <p>
+ * Names resolve with the same first-added-wins policy as {@link FileSystemManagerImpl}. Paths
+ * resolve one child lookup per component, each under that folder's stripe lock, through a
+ * shared LRU cache of folder paths that moves invalidate. The cache is segmented by path, so
+ * resolutions of different paths do not queue on one monitor.
+ */
+public class ConcurrentFileSystemManager implements FileSystemManager {
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+
+    private final Folder rootDirectory;
+    private final Map<String, FileSystemItem> itemsByName = new ConcurrentHashMap<>();
+    private final StampedLock topologyLock = new StampedLock();
+    private final StampedLock[] folderLocks;
+    private final Object statsLock = new Object(); // Guards the folders' aggregate figures, which span stripes
+    private final PathCache<Folder> pathCache = new PathCache<>(PathCache.DEFAULT_CAPACITY);
+    private final WatchRegistry<Folder> watches = new WatchRegistry<>(Folder::getParent, FileSystemPaths::pathOf);
+    private final TreeShape<FileSystemItem> treeShape = new TreeShape<FileSystemItem>() {
+        @Override
+        public Iterator<FileSystemItem> children(FileSystemItem folder) {
+            return Arrays.asList(childrenOf((Folder) folder)).iterator();
+        }
+
+        @Override
+        public String name(FileSystemItem node) {
+            return node.getName();
+        }
+
+        @Override
+        public boolean isFolder(FileSystemItem node) {
+            return node.isFolder();
+        }
+    };
+    // For traversals holding every stripe, which read the folders directly
+    private final TreeShape<FileSystemItem> lockedTreeShape = new TreeShape<FileSystemItem>() {
+        @Override
+        public Iterator<FileSystemItem> children(FileSystemItem folder) {
+            return ((Folder) folder).getItems().iterator();
+        }
+
+        @Override
+        public String name(FileSystemItem node) {
+            return node.getName();
+        }
+
+        @Override
+        public boolean isFolder(FileSystemItem node) {
+            return node.isFolder();
+        }
+    };
+
+    public ConcurrentFileSystemManager(String rootName) {
+        this(rootName, DEFAULT_LOCK_STRIPES);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param lockStripes the number of folder locks, rounded up to a power of two
+     */
+    public ConcurrentFileSystemManager(String rootName, int lockStripes) {
+        this(rootName, lockStripes, false);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param lockStripes the number of folder locks, rounded up to a power of two
+     * @param folderStatsEnabled true to keep every folder's aggregate figures up to date, so
+     *        {@link #getFolderStats} answers in O(1) at the cost of O(depth) per add and move
+     */
+    public ConcurrentFileSystemManager(String rootName, int lockStripes, boolean folderStatsEnabled) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("lockStripes must be positive: " + lockStripes);
+        }
+        int stripes = 1;
+        while (stripes < lockStripes) {
+            stripes <<= 1;
+        }
+        this.folderLocks = new StampedLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            folderLocks[i] = new StampedLock();
+        }
+        this.rootDirectory = new Folder(rootName);
+        if (folderStatsEnabled) {
+            rootDirectory.trackStats();
+        }
+        itemsByName.put(rootName, rootDirectory);
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        add(parentFolderName, name, isFolder, 0L);
+    }
+
+    @Override
+    public OperationStatus apply(FileSystemOperation operation) {
+        return operation.getType() == OperationType.ADD
+                ? add(operation.getFolderName(), operation.getName(), operation.isFolder(), operation.getSize())
+                : move(operation.getName(), operation.getFolderName());
+    }
+
+    private OperationStatus add(String parentFolderName, String name, boolean isFolder, long size) {
+        Folder parentDir = searchFolder(parentFolderName);
+        if (parentDir == null) {
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        // Matching watches walks the parent chain, which only moves change; the topology lock
+        // comes before the stripe, as in moves, and the event is published while the stripe is
+        // still held, so events for one folder are published in the order the adds happened
+        boolean watched = !watches.isEmpty();
+        long topologyStamp = watched ? topologyLock.readLock() : 0L;
+        try {
+            StampedLock lock = lockFor(parentDir);
+            long stamp = lock.writeLock();
+            try {
+                OperationStatus status = add(parentDir, name, isFolder, size);
+                if (status == OperationStatus.APPLIED && watched) {
+                    watches.added(parentDir, name, isFolder);
+                }
+                return status;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        } finally {
+            if (watched) {
+                topologyLock.unlockRead(topologyStamp);
+            }
+        }
+    }
+
+    // Adds to a folder whose stripe the caller holds for writing
+    private OperationStatus add(Folder parentDir, String name, boolean isFolder, long size) {
+        if (parentDir == null) {
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        FileSystemItem newItem = isFolder ? new Folder(name) : new File(name, size);
+        if (!attach(parentDir, newItem)) {
+            return OperationStatus.NAME_TAKEN;
+        }
+        itemsByName.putIfAbsent(name, newItem); // First item with a given name owns it
+        return OperationStatus.APPLIED;
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        move(sourceName, destinationFolderName);
+    }
+
+    private OperationStatus move(String sourceName, String destinationFolderName) {
+        long topologyStamp = topologyLock.writeLock();
+        try {
+            FileSystemItem sourceItem = locateItem(sourceName, this::childOf);
+            Folder targetFolder = searchFolder(destinationFolderName);
+            OperationStatus status = checkMove(sourceItem, targetFolder);
+            if (status != OperationStatus.APPLIED) {
+                return status;
+            }
+
+            // Lock both endpoints in stripe order so concurrent adds and reads see an atomic move
+            int sourceStripe = stripeOf(sourceItem.getParent());
+            int targetStripe = stripeOf(targetFolder);
+            StampedLock first = folderLocks[Math.min(sourceStripe, targetStripe)];
+            StampedLock second = folderLocks[Math.max(sourceStripe, targetStripe)];
+            long firstStamp = first.writeLock();
+            long secondStamp = first == second ? 0L : second.writeLock();
+            try {
+                return relocate(sourceItem, targetFolder);
+            } finally {
+                if (first != second) {
+                    second.unlockWrite(secondStamp);
+                }
+                first.unlockWrite(firstStamp);
+            }
+        } finally {
+            topologyLock.unlockWrite(topologyStamp);
+        }
+    }
+
+    // Checks everything but the target's child names, which need the target's stripe lock
+    private static OperationStatus checkMove(FileSystemItem sourceItem, Folder targetFolder) {
+        if (sourceItem == null) {
+            return OperationStatus.SOURCE_NOT_FOUND; // Source does not exist
+        }
+        if (sourceItem.getParent() == null) {
+            return OperationStatus.ROOT_NOT_MOVABLE; // The root cannot be moved
+        }
+        if (targetFolder == null) {
+            return OperationStatus.TARGET_NOT_FOUND; // Target directory does not exist
+        }
+        if (targetFolder == sourceItem || targetFolder.isDescendantOf(sourceItem)) {
+            return OperationStatus.TARGET_INSIDE_SOURCE; // A folder cannot be moved into itself or one of its descendants
+        }
+        if (targetFolder == sourceItem.getParent()) {
+            return OperationStatus.ALREADY_IN_TARGET;
+        }
+        return OperationStatus.APPLIED;
+    }
+
+    // Moves a checked item; the caller holds the topology lock and both endpoint stripes for writing
+    private OperationStatus relocate(FileSystemItem sourceItem, Folder targetFolder) {
+        if (targetFolder.getItem(sourceItem.getName()) != null) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in the target
+        }
+        if (sourceItem.isFolder()) {
+            pathCache.invalidate(FileSystemPaths.pathOf(sourceItem));
+        }
+        Folder sourceFolder = sourceItem.getParent();
+        if (!rootDirectory.isStatsTracked()) {
+            sourceFolder.removeItem(sourceItem);
+            targetFolder.addItem(sourceItem);
+        } else {
+            synchronized (statsLock) {
+                sourceFolder.removeItem(sourceItem);
+                targetFolder.addItem(sourceItem);
+            }
+        }
+        watches.moved(sourceFolder, targetFolder, sourceItem.getName(), sourceItem.isFolder());
+        return OperationStatus.APPLIED;
+    }
+
+    // Adds a child under its parent's stripe, taking the statistics monitor only if there are figures to update
+    private boolean attach(Folder parentDir, FileSystemItem item) {
+        if (!parentDir.isStatsTracked()) {
+            return parentDir.addItem(item);
+        }
+        synchronized (statsLock) {
+            return parentDir.addItem(item);
+        }
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        long topologyStamp = topologyLock.writeLock();
+        long[] stripeStamps = new long[folderLocks.length];
+        for (int i = 0; i < folderLocks.length; i++) {
+            stripeStamps[i] = folderLocks[i].writeLock();
+        }
+        try {
+            OperationBatch batch = new OperationBatch(operations);
+            List<OperationStatus> results = new ArrayList<>(operations.size());
+            for (FileSystemOperation operation : operations) {
+                if (operation.getType() == OperationType.ADD) {
+                    Folder parentDir = batch.parentFolder(operation.getFolderName(),
+                            folderName -> searchFolder(folderName, Folder::getItem));
+                    OperationStatus status = add(parentDir, operation.getName(), operation.isFolder(), operation.getSize());
+                    if (status == OperationStatus.APPLIED) {
+                        watches.added(parentDir, operation.getName(), operation.isFolder());
+                    }
+                    results.add(status);
+                    continue;
+                }
+                FileSystemItem sourceItem = locateItem(operation.getName(), Folder::getItem);
+                Folder targetFolder = searchFolder(operation.getFolderName(), Folder::getItem);
+                OperationStatus status = checkMove(sourceItem, targetFolder);
+                results.add(batch.moved(status == OperationStatus.APPLIED ? relocate(sourceItem, targetFolder) : status));
+            }
+            return results;
+        } finally {
+            for (int i = folderLocks.length - 1; i >= 0; i--) {
+                folderLocks[i].unlockWrite(stripeStamps[i]);
+            }
+            topologyLock.unlockWrite(topologyStamp);
+        }
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return null; // Directory not found
+        }
+        if (directory.isStatsTracked()) {
+            synchronized (statsLock) {
+                return directory.getStats();
+            }
+        }
+        long[] stamps = readLockAll();
+        try {
+            return TreeTraversal.folderStats(lockedTreeShape, directory, item -> ((File) item).getSize());
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        Folder directory = searchFolder(folderName);
+        return directory == null ? null : watches.subscribe(directory, recursive, watcher);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Directory not found
+        }
+
+        List<String> items = new ArrayList<>();
+        for (FileSystemItem item : childrenOf(directory)) {
+            items.add(item.getName());
+        }
+        return items;
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return ContentPage.empty(); // Directory not found
+        }
+
+        StampedLock lock = lockFor(directory);
+        long stamp = lock.readLock();
+        try {
+            if (sortOrder == SortOrder.NAME && !directory.isNameOrderIndexed()) {
+                // Building the name-sorted view modifies the folder, so it needs the write lock once
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0L) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
+                }
+                stamp = writeStamp;
+                directory.indexNameOrder();
+            }
+            return PageCursor.page(directory, cursor, limit, sortOrder);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        long[] stamps = readLockAll();
+        try {
+            return TreeTraversal.drain(TreeTraversal.directoryStructure(lockedTreeShape, rootDirectory));
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        long[] stamps = readLockAll();
+        try {
+            return ParallelTraversal.directoryStructure(lockedTreeShape, rootDirectory, parallelism);
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(treeShape, rootDirectory);
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        long[] stamps = readLockAll();
+        try {
+            TreeTraversal.writeDirectoryStructure(lockedTreeShape, rootDirectory, out);
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return null; // Folder does not exist
+        }
+
+        for (FileSystemItem item : childrenOf(directory)) {
+            if (!item.isFolder() && item.getName().equalsIgnoreCase(fileName)) {
+                return item.getName(); // Found exact match
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return collectFiles(folderName, likeMatchFilter(pattern));
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Folder not found
+        }
+
+        long[] stamps = readLockAll();
+        try {
+            return ParallelTraversal.matchingFiles(lockedTreeShape, directory, likeMatchFilter(pattern), parallelism);
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+        return TreeTraversal.matchingFiles(treeShape, directory, likeMatchFilter(pattern));
+    }
+
+    private static Predicate<String> likeMatchFilter(String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return name -> SortedNameIndex.fold(name).contains(foldedPattern);
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern namePattern = NamePattern.compile(query, searchType);
+        return collectFiles(folderName, namePattern::matches, files -> TreeTraversal.firstInNameOrder(files, limit));
+    }
+
+    private List<String> collectFiles(String folderName, Predicate<String> nameFilter) {
+        return collectFiles(folderName, nameFilter, TreeTraversal::drain);
+    }
+
+    // Walks the folder's matching files and gathers them with the collector, all under every lock held shared
+    private List<String> collectFiles(String folderName, Predicate<String> nameFilter,
+                                      Function<Iterator<String>, List<String>> collector) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Folder not found
+        }
+
+        long[] stamps = readLockAll();
+        try {
+            return collector.apply(TreeTraversal.matchingFiles(lockedTreeShape, directory, nameFilter));
+        } finally {
+            unlockReadAll(stamps);
+        }
+    }
+
+    /**
+     * Takes the topology lock and then every stripe shared, in stripe order, as a batch takes
+     * them exclusively. Nothing can change the tree until {@link #unlockReadAll} is called.
+     *
+     * @return the stamps, the topology lock's last
+     */
+    private long[] readLockAll() {
+        long[] stamps = new long[folderLocks.length + 1];
+        stamps[folderLocks.length] = topologyLock.readLock();
+        for (int i = 0; i < folderLocks.length; i++) {
+            stamps[i] = folderLocks[i].readLock();
+        }
+        return stamps;
+    }
+
+    private void unlockReadAll(long[] stamps) {
+        for (int i = folderLocks.length - 1; i >= 0; i--) {
+            folderLocks[i].unlockRead(stamps[i]);
+        }
+        topologyLock.unlockRead(stamps[folderLocks.length]);
+    }
+
+    // Copies a folder's children under its stripe lock so callers can iterate without holding it
+    private FileSystemItem[] childrenOf(Folder directory) {
+        StampedLock lock = lockFor(directory);
+        long stamp = lock.readLock();
+        try {
+            return directory.getItems().toArray(new FileSystemItem[0]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private StampedLock lockFor(Folder folder) {
+        return folderLocks[stripeOf(folder)];
+    }
+
+    private int stripeOf(Folder folder) {
+        int hash = System.identityHashCode(folder);
+        return (hash ^ (hash >>> 16)) & (folderLocks.length - 1);
+    }
+
+    // Helper function to locate a folder by name
+    private Folder searchFolder(String folderName) {
+        return searchFolder(folderName, this::childOf);
+    }
+
+    private Folder searchFolder(String folderName, FileSystemPaths.ChildLookup childLookup) {
+        FileSystemItem item = locateItem(folderName, childLookup);
+        return item != null && item.isFolder() ? (Folder) item : null;
+    }
+
+    // Helper function to locate a file or folder by name, or by absolute path through the given child lookup
+    private FileSystemItem locateItem(String name, FileSystemPaths.ChildLookup childLookup) {
+        if (FileSystemPaths.isPath(name)) {
+            return FileSystemPaths.resolve(name, rootDirectory, pathCache, childLookup);
+        }
+        return itemsByName.get(name);
+    }
+
+    private FileSystemItem childOf(Folder directory, String name) {
+        StampedLock lock = lockFor(directory);
+        long stamp = lock.readLock();
+        try {
+            return directory.getItem(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.filemanager.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
 /**
  * Interface representing a file system manager.
  * Provides methods to manage files and folders within a file system.
+ * <p>
+ * Wherever a method takes the name of an existing file or folder, it also accepts an absolute
+ * path starting with "/", such as "/projects/2026/q3". A path starts at the root folder,
+ * excluding the root's own name, and is resolved one folder at a time, so it is unambiguous
+ * even when several folders share a name.
  */
 public interface FileSystemManager {
     /**
@@ -24,6 +40,57 @@ public interface FileSystemManager {
      */
     void moveFileOrFolder(String sourceName, String destinationFolderName);
 
+    /**
+     * Applies a single add or move exactly as {@link #addFileOrFolder} or
+     * {@link #moveFileOrFolder} would, and reports what happened.
+     *
+     * @param operation the operation to apply
+     * @return APPLIED, or the reason the operation left the tree unchanged
+     */
+    default OperationStatus apply(FileSystemOperation operation) {
+        return applyBatch(Collections.singletonList(operation)).get(0);
+    }
+
+    /**
+     * Applies a list of adds and moves in order, as if each were passed to
+     * {@link #addFileOrFolder} or {@link #moveFileOrFolder}. Later operations see the effects of
+     * earlier ones, so a batch may add a folder and then fill it. Each parent folder is resolved
+     * once per batch, however many items the batch adds to it. Thread-safe implementations apply
+     * the whole batch atomically: concurrent readers see either none of it or all of it.
+     *
+     * @param operations the operations to apply
+     * @return one status per operation, in the same order; an operation that fails leaves the
+     *         tree unchanged and does not stop the rest of the batch
+     */
+    List<OperationStatus> applyBatch(List<FileSystemOperation> operations);
+
+    /**
+     * Returns aggregate figures for everything below a folder. Implementations that keep the
+     * figures up to date on every add and move answer in O(1); the others walk the subtree.
+     *
+     * @param folderName the name of the folder
+     * @return the file and folder counts, total file bytes and max depth below the folder, or
+     *         null if the folder does not exist
+     */
+    FolderStats getFolderStats(String folderName);
+
+    /**
+     * Watches a folder for items added to it and items moved into or out of it, and optionally
+     * for the same changes anywhere below it. Events are delivered asynchronously in batches,
+     * through a bounded queue per subscription in which repeated changes to the same item
+     * coalesce; a subscriber that falls too far behind gets an OVERFLOW event instead of
+     * blocking writers. The watch follows the folder if it moves.
+     *
+     * @param folderName the name of the folder to watch
+     * @param recursive true to also watch every folder below it, including folders added later
+     * @param watcher receives the events
+     * @return the subscription, to close when done, or null if the folder does not exist
+     * @throws UnsupportedOperationException if the implementation does not support watches
+     */
+    default WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        throw new UnsupportedOperationException("Watches are not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * Lists the contents of a specific folder.
      *
@@ -32,6 +99,21 @@ public interface FileSystemManager {
      */
     List<String> listContents(String folderName);
 
+    /**
+     * Lists one page of the contents of a specific folder. Start with a null cursor and pass
+     * each page's next cursor to get the following page. Items added while paging never cause
+     * an item to be repeated or an item present throughout to be skipped.
+     *
+     * @param folderName the name of the folder
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of names on the page
+     * @param sortOrder INSERTION for the order the items were added, NAME for name order
+     * @return the page, empty if the folder does not exist
+     * @throws IllegalArgumentException if the limit is not positive or the cursor was not
+     *         produced by a listing in the same sort order
+     */
+    ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder);
+
     /**
      * Returns the directory structure of each file and folder in the file system.
      *
@@ -39,6 +121,43 @@ public interface FileSystemManager {
      */
     List<String> listDirectoryStructure();
 
+    /**
+     * Returns the same lines as {@link #listDirectoryStructure()}, in the same order, splitting
+     * large subtrees across up to the given number of threads. Implementations that cannot walk
+     * in parallel fall back to the sequential walk.
+     *
+     * @param parallelism the maximum number of threads to use, at most the number of available
+     *        processors; 1 walks on the calling thread
+     * @return a list representing the directory structure
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    default List<String> listDirectoryStructureInParallel(int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        return listDirectoryStructure();
+    }
+
+    /**
+     * Lazily produces the same lines as {@link #listDirectoryStructure()}, one entry at a time,
+     * so memory use is bounded by the depth of the tree instead of its size.
+     *
+     * @return an iterator over the directory structure lines
+     */
+    Iterator<String> iterateDirectoryStructure();
+
+    /**
+     * Writes the directory structure to the given output, one line per entry, each terminated
+     * by a newline.
+     *
+     * @param out the destination, for example a Writer or StringBuilder
+     * @throws IOException if the destination fails
+     */
+    default void writeDirectoryStructure(Appendable out) throws IOException {
+        Iterator<String> lines = iterateDirectoryStructure();
+        while (lines.hasNext()) {
+            out.append(lines.next()).append('\n');
+        }
+    }
+
     /**
      * Searches for an exact file match within a specific folder.
      *
@@ -56,4 +175,80 @@ public interface FileSystemManager {
      * @return a list of file names that match the pattern
      */
     List<String> searchFileLikeMatch(String folderName, String pattern);
+
+    /**
+     * Returns the same results as {@link #searchFileLikeMatch(String, String)}, in the same
+     * order, splitting large subtrees across up to the given number of threads.
+     *
+     * @param folderName the name of the folder to search within
+     * @param pattern the pattern must be part(Contains) of the file name.
+     * @param parallelism the maximum number of threads to use, at most the number of available
+     *        processors; 1 walks on the calling thread
+     * @return a list of file names that match the pattern
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    default List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        return searchFileLikeMatch(folderName, pattern);
+    }
+
+    /**
+     * Lazily produces the same results as {@link #searchFileLikeMatch(String, String)}.
+     *
+     * @param folderName the name of the folder to search within
+     * @param pattern the pattern must be part(Contains) of the file name.
+     * @return an iterator over the matching file names, empty if the folder does not exist
+     */
+    Iterator<String> iterateFileLikeMatch(String folderName, String pattern);
+
+    /**
+     * Searches for files by pattern within a specific folder, stopping as soon as enough
+     * matches are found.
+     *
+     * @param folderName the name of the folder to search within
+     * @param pattern the pattern must be part(Contains) of the file name.
+     * @param limit the maximum number of file names to return
+     * @return at most limit matching file names
+     */
+    default List<String> searchFileLikeMatch(String folderName, String pattern, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        List<String> matchingFiles = new ArrayList<>();
+        Iterator<String> matches = iterateFileLikeMatch(folderName, pattern);
+        while (matchingFiles.size() < limit && matches.hasNext()) {
+            matchingFiles.add(matches.next());
+        }
+        return matchingFiles;
+    }
+
+    /**
+     * Searches for files by name within a folder and all of its subfolders, ignoring case.
+     *
+     * @param folderName the name of the folder to search within
+     * @param query the full file name (EXACT), the start of the file name (PREFIX), a glob such
+     *        as "report-2026-??.csv" (GLOB) or a regular expression for the whole name (REGEX)
+     * @param searchType how the query is matched against file names
+     * @return the names of the matching files, ordered by case-insensitive name, and names that
+     *         differ only in case by the names themselves
+     * @throws IllegalArgumentException if a regular expression is malformed
+     */
+    default List<String> searchFiles(String folderName, String query, SearchType searchType) {
+        return searchFiles(folderName, query, searchType, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches like {@link #searchFiles(String, String, SearchType)}, compiling the query once,
+     * and returns only the first matches in that order. Every implementation returns the same
+     * names for the same tree and query.
+     *
+     * @param folderName the name of the folder to search within
+     * @param query the name, prefix, glob or regular expression to match
+     * @param searchType how the query is matched against file names
+     * @param limit the maximum number of file names to return
+     * @return the first limit matching file names in the order of
+     *         {@link #searchFiles(String, String, SearchType)}
+     * @throws IllegalArgumentException if the limit is negative or a regular expression is malformed
+     */
+    List<String> searchFiles(String folderName, String query, SearchType searchType, int limit);
 }
@@ -1,53 +1,340 @@
 package com.filemanager.service;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NGramIndex;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.ContentPage;
 import com.filemanager.models.File;
 import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
 import com.filemanager.models.Folder;
 
+/**
+ * In-memory {@link FileSystemManager} backed by a tree of {@link Folder} and {@link File} nodes.
+ * <p>
+ * Items are addressed by bare name through a name index that is kept in sync on every add, so
+ * lookups no longer walk the tree. When the same name exists in several folders, the name
+ * resolves to the item that was added first; later items with that name stay in the tree and
+ * show up in listings and searches, but cannot be addressed by name.
+ * <p>
+ * Files are also kept in a case-folded sorted index that backs {@link #searchFiles}, and
+ * optionally in a trigram index that narrows {@link #searchFileLikeMatch} to a few candidates.
+ * Below the root, a search takes turns scanning the sorted index and walking the folder, so it
+ * costs about as much as the cheaper of the two. With the trigram index enabled, substring matches come back in the order the files were added
+ * rather than in directory order.
+ * <p>
+ * Paths are resolved one child lookup per component. Resolved folder paths are kept in a
+ * bounded LRU cache, and moving a folder evicts the cached paths of its subtree.
+ * <p>
+ * Iterators returned by this class read the live tree; the tree must not be modified while one
+ * is in use. Watch events are delivered on separate threads, so watchers must not call back
+ * into this manager unless the caller synchronizes access to it.
+ */
 public class FileSystemManagerImpl implements FileSystemManager {
+    private static final long INITIAL_SEARCH_BUDGET = 64;
+    private static final TreeShape<FileSystemItem> TREE_SHAPE = new TreeShape<FileSystemItem>() {
+        @Override
+        public Iterator<FileSystemItem> children(FileSystemItem folder) {
+            return ((Folder) folder).getItems().iterator();
+        }
+
+        @Override
+        public String name(FileSystemItem node) {
+            return node.getName();
+        }
+
+        @Override
+        public boolean isFolder(FileSystemItem node) {
+            return node.isFolder();
+        }
+    };
+
     private Folder rootDirectory;
+    private final Map<String, FileSystemItem> itemsByName = new HashMap<>();
+    private final SortedNameIndex fileNameIndex = new SortedNameIndex();
+    private final NGramIndex fileGramIndex;
+    private final PathCache<Folder> pathCache = new PathCache<>(PathCache.DEFAULT_CAPACITY);
+    private final WatchRegistry<Folder> watches;
 
     public FileSystemManagerImpl(String rootName) {
-        this.rootDirectory = new Folder(rootName);
+        this(rootName, false);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     */
+    public FileSystemManagerImpl(String rootName, boolean substringIndexEnabled) {
+        this(rootName, substringIndexEnabled, false);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     * @param folderStatsEnabled true to keep every folder's aggregate figures up to date, so
+     *        {@link #getFolderStats} answers in O(1) at the cost of O(depth) per add and move
+     */
+    public FileSystemManagerImpl(String rootName, boolean substringIndexEnabled, boolean folderStatsEnabled) {
+        this(new Folder(rootName), substringIndexEnabled);
+        if (folderStatsEnabled) {
+            rootDirectory.trackStats();
+        }
+    }
+
+    /**
+     * Creates a manager over an empty root folder that reports changes to watches shared with
+     * other managers, as the shards of a {@link ShardedFileSystemManager} do.
+     *
+     * @param rootDirectory the root folder, which must be empty
+     * @param watches the registry to report changes to
+     */
+    FileSystemManagerImpl(Folder rootDirectory, WatchRegistry<Folder> watches) {
+        this(rootDirectory, false, watches);
+    }
+
+    private FileSystemManagerImpl(Folder rootDirectory, boolean substringIndexEnabled) {
+        this(rootDirectory, substringIndexEnabled, new WatchRegistry<>(Folder::getParent, FileSystemPaths::pathOf));
+    }
+
+    private FileSystemManagerImpl(Folder rootDirectory, boolean substringIndexEnabled, WatchRegistry<Folder> watches) {
+        this.rootDirectory = rootDirectory;
+        this.fileGramIndex = substringIndexEnabled ? new NGramIndex() : null;
+        this.watches = watches;
+        itemsByName.put(rootDirectory.getName(), rootDirectory);
+    }
+
+    /**
+     * Writes a compact binary image of the whole tree, including which item owns each name.
+     *
+     * @param out the destination
+     * @throws IOException if the destination fails
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        TreeImage.write(rootDirectory, item -> itemsByName.get(item.getName()) == item, out);
+    }
+
+    /**
+     * Writes the tree in the random-access format served by {@link MappedFileSystemManager}.
+     *
+     * @param file the destination, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeMappedSnapshot(Path file) throws IOException {
+        MappedTreeImage.write(rootDirectory, item -> itemsByName.get(item.getName()) == item, file);
+    }
+
+    /**
+     * Rebuilds a manager from an image written by {@link #writeSnapshot}. Listings and name
+     * resolution come back exactly as they were; the search indexes are rebuilt in directory
+     * order, so results that follow the order files were added now follow directory order.
+     *
+     * @param in the image
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     * @return the restored manager
+     * @throws IOException if the image cannot be read or is corrupt
+     */
+    public static FileSystemManagerImpl readSnapshot(DataInput in, boolean substringIndexEnabled) throws IOException {
+        return readSnapshot(in, substringIndexEnabled, false);
+    }
+
+    /**
+     * Rebuilds a manager from an image written by {@link #writeSnapshot}, like
+     * {@link #readSnapshot(DataInput, boolean)}. The folders' aggregate figures, if enabled, are
+     * computed in one pass once the whole tree is in place.
+     *
+     * @param in the image
+     * @param substringIndexEnabled true to maintain a trigram index for substring searches
+     * @param folderStatsEnabled true to keep every folder's aggregate figures up to date
+     * @return the restored manager
+     * @throws IOException if the image cannot be read or is corrupt
+     */
+    public static FileSystemManagerImpl readSnapshot(DataInput in, boolean substringIndexEnabled,
+                                                     boolean folderStatsEnabled) throws IOException {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl(TreeImage.readRoot(in), substringIndexEnabled);
+        TreeImage.readChildren(in, fileSystemManager.rootDirectory, fileSystemManager::register);
+        if (folderStatsEnabled) {
+            fileSystemManager.rootDirectory.trackStats();
+        }
+        return fileSystemManager;
     }
 
     @Override
     public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
-        Folder parentDir = searchFolder(parentFolderName);
+        add(searchFolder(parentFolderName), name, isFolder, 0L);
+    }
+
+    private OperationStatus add(Folder parentDir, String name, boolean isFolder, long size) {
         if (parentDir == null) {
-            return; // No parent directory located
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        FileSystemItem newItem = isFolder ? new Folder(name) : new File(name, size);
+        if (!parentDir.addItem(newItem)) {
+            return OperationStatus.NAME_TAKEN;
+        }
+        register(newItem, !itemsByName.containsKey(name)); // First item with a given name owns it
+        watches.added(parentDir, name, isFolder);
+        return OperationStatus.APPLIED;
+    }
+
+    // Indexes an item that has just been attached to the tree
+    private void register(FileSystemItem item, boolean ownsName) {
+        if (ownsName) {
+            itemsByName.put(item.getName(), item);
+        }
+        if (!item.isFolder()) {
+            fileNameIndex.add(item);
+            if (fileGramIndex != null) {
+                fileGramIndex.add(item);
+            }
         }
-        FileSystemItem newItem = isFolder ? new Folder(name) : new File(name);
-        parentDir.addItem(newItem);
     }
 
     @Override
     public void moveFileOrFolder(String sourceName, String destinationFolderName) {
-        // Find the source file or directory
-        FileSystemItem sourceItem = locateItem(sourceName);
+        // Find the source file or directory and the destination folder
+        move(locateItem(sourceName), searchFolder(destinationFolderName));
+    }
+
+    private OperationStatus move(FileSystemItem sourceItem, Folder targetFolder) {
         if (sourceItem == null) {
-            return; // Source does not exist
+            return OperationStatus.SOURCE_NOT_FOUND; // Source does not exist
         }
 
         // Identify the parent directory of the source
-        Folder currentParentDir = locateParentFolder(sourceName);
+        Folder currentParentDir = sourceItem.getParent();
         if (currentParentDir == null) {
-            return; // No parent directory found
+            return OperationStatus.ROOT_NOT_MOVABLE; // The root cannot be moved
         }
-
-        // Find the destination folder
-        Folder targetFolder = searchFolder(destinationFolderName);
         if (targetFolder == null) {
-            return; // Target directory does not exist
+            return OperationStatus.TARGET_NOT_FOUND; // Target directory does not exist
+        }
+        if (targetFolder == sourceItem || targetFolder.isDescendantOf(sourceItem)) {
+            return OperationStatus.TARGET_INSIDE_SOURCE; // A folder cannot be moved into itself or one of its descendants
+        }
+        if (targetFolder == currentParentDir) {
+            return OperationStatus.ALREADY_IN_TARGET;
+        }
+        if (targetFolder.getItem(sourceItem.getName()) != null) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in the target
         }
 
         // Move source to target folder
+        if (sourceItem.isFolder()) {
+            pathCache.invalidate(FileSystemPaths.pathOf(sourceItem));
+        }
         currentParentDir.removeItem(sourceItem);
         targetFolder.addItem(sourceItem);
+        watches.moved(currentParentDir, targetFolder, sourceItem.getName(), sourceItem.isFolder());
+        return OperationStatus.APPLIED;
+    }
+
+    /**
+     * Takes an item and everything below it out of the tree and the indexes, so that another
+     * manager can {@link #attach} it. Nothing is reported to watchers.
+     *
+     * @param item an item of this manager other than the root
+     * @return the items of the subtree that owned their names here
+     */
+    List<FileSystemItem> detach(FileSystemItem item) {
+        if (item.isFolder()) {
+            pathCache.invalidate(FileSystemPaths.pathOf(item));
+        }
+        List<FileSystemItem> nameOwners = new ArrayList<>();
+        for (FileSystemItem node : subtreeOf(item)) {
+            if (itemsByName.get(node.getName()) == node) {
+                itemsByName.remove(node.getName());
+                nameOwners.add(node);
+            }
+            if (!node.isFolder()) {
+                fileNameIndex.remove(node);
+                if (fileGramIndex != null) {
+                    fileGramIndex.remove(node);
+                }
+            }
+        }
+        item.getParent().removeItem(item);
+        return nameOwners;
+    }
+
+    /**
+     * Adds an item detached from another manager, with everything below it, to a folder of this
+     * tree. Nothing is reported to watchers.
+     *
+     * @param parentDir the new parent, which must not hold the item's name yet
+     * @param item the detached item
+     * @param ownsName tells which items of the subtree take over their names here
+     */
+    void attach(Folder parentDir, FileSystemItem item, Predicate<FileSystemItem> ownsName) {
+        parentDir.addItem(item);
+        for (FileSystemItem node : subtreeOf(item)) {
+            register(node, ownsName.test(node));
+        }
+    }
+
+    private static List<FileSystemItem> subtreeOf(FileSystemItem item) {
+        List<FileSystemItem> subtree = new ArrayList<>();
+        subtree.add(item);
+        for (int i = 0; i < subtree.size(); i++) {
+            if (subtree.get(i).isFolder()) {
+                subtree.addAll(((Folder) subtree.get(i)).getItems());
+            }
+        }
+        return subtree;
+    }
+
+    @Override
+    public OperationStatus apply(FileSystemOperation operation) {
+        return operation.getType() == OperationType.ADD
+                ? add(searchFolder(operation.getFolderName()), operation.getName(), operation.isFolder(), operation.getSize())
+                : move(locateItem(operation.getName()), searchFolder(operation.getFolderName()));
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        OperationBatch batch = new OperationBatch(operations);
+        List<OperationStatus> results = new ArrayList<>(operations.size());
+        for (FileSystemOperation operation : operations) {
+            results.add(operation.getType() == OperationType.ADD
+                    ? add(batch.parentFolder(operation.getFolderName(), this::searchFolder),
+                            operation.getName(), operation.isFolder(), operation.getSize())
+                    : batch.moved(move(locateItem(operation.getName()), searchFolder(operation.getFolderName()))));
+        }
+        return results;
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return null; // Directory not found
+        }
+        return directory.isStatsTracked() ? directory.getStats()
+                : TreeTraversal.folderStats(TREE_SHAPE, directory, item -> ((File) item).getSize());
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        Folder directory = searchFolder(folderName);
+        return directory == null ? null : watches.subscribe(directory, recursive, watcher);
     }
 
     @Override
@@ -57,33 +344,41 @@ public class FileSystemManagerImpl implements FileSystemManager {
             return Collections.emptyList(); // Directory not found
         }
 
-        List<String> items = new ArrayList<>();
+        List<String> items = new ArrayList<>(directory.getItemCount());
         for (FileSystemItem item : directory.getItems()) {
             items.add(item.getName());
         }
         return items;
     }
 
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return ContentPage.empty(); // Directory not found
+        }
+        return PageCursor.page(directory, cursor, limit, sortOrder);
+    }
+
     @Override
     public List<String> listDirectoryStructure() {
-        List<String> hierarchy = new ArrayList<>();
-        generateDirectoryStructure(hierarchy, rootDirectory, 0);
-        return hierarchy;
+        return TreeTraversal.drain(iterateDirectoryStructure());
     }
 
-    private void generateDirectoryStructure(List<String> hierarchy, Folder directory, int level) {
-        StringBuilder indent = new StringBuilder();
-        for (int i = 0; i < level; i++) {
-            indent.append("  ");
-        }
-        hierarchy.add(indent + "+ " + directory.getName());
-        for (FileSystemItem item : directory.getItems()) {
-            if (item.isFolder()) {
-                generateDirectoryStructure(hierarchy, (Folder) item, level + 1);
-            } else {
-                hierarchy.add(indent + "  - " + item.getName());
-            }
-        }
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return ParallelTraversal.directoryStructure(TREE_SHAPE, rootDirectory, parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(TREE_SHAPE, rootDirectory);
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        TreeTraversal.writeDirectoryStructure(TREE_SHAPE, rootDirectory, out);
     }
 
     @Override
@@ -93,7 +388,11 @@ public class FileSystemManagerImpl implements FileSystemManager {
             return null; // Folder does not exist
         }
 
-        // Check for exact match with case-insensitive comparison
+        // Same-case names resolve through the child map; otherwise compare case-insensitively
+        FileSystemItem sameCase = directory.getItem(fileName);
+        if (sameCase != null && !sameCase.isFolder()) {
+            return sameCase.getName();
+        }
         for (FileSystemItem item : directory.getItems()) {
             if (!item.isFolder() && item.getName().equalsIgnoreCase(fileName)) {
                 return item.getName(); // Found exact match
@@ -104,74 +403,156 @@ public class FileSystemManagerImpl implements FileSystemManager {
 
     @Override
     public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return TreeTraversal.drain(iterateFileLikeMatch(folderName, pattern));
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        if (fileGramIndex != null) {
+            return searchFileLikeMatch(folderName, pattern); // The trigram index avoids the walk
+        }
         Folder directory = searchFolder(folderName);
         if (directory == null) {
             return Collections.emptyList(); // Folder not found
         }
-
-        List<String> matchingFiles = new ArrayList<>();
-        retrieveMatchingFiles(directory, pattern.toLowerCase(), matchingFiles);
-        return matchingFiles;
+        return ParallelTraversal.matchingFiles(TREE_SHAPE, directory, likeMatchFilter(pattern), parallelism);
     }
 
-    private void retrieveMatchingFiles(Folder directory, String pattern, List<String> matchingFiles) {
-        for (FileSystemItem item : directory.getItems()) {
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        List<FileSystemItem> candidates = fileGramIndex == null ? null : fileGramIndex.candidates(foldedPattern);
+        if (candidates == null) {
             // Look for partial matches (case-insensitive)
-            if (!item.isFolder() && item.getName().toLowerCase().contains(pattern)) {
-                matchingFiles.add(item.getName());
-            } else if (item.isFolder()) {
-                retrieveMatchingFiles((Folder) item, pattern, matchingFiles);
-            }
+            return TreeTraversal.matchingFiles(TREE_SHAPE, directory, likeMatchFilter(pattern));
         }
-    }
 
-    // Helper function to locate a folder by name
-    private Folder searchFolder(String folderName) {
-        return (Folder) locateItem(folderName);
+        // Verify the trigram candidates against the whole pattern and the requested subtree
+        boolean wholeTree = directory == rootDirectory;
+        TraversalCounter counter = TraversalCounter.current();
+        return candidates.stream()
+                .filter(candidate -> {
+                    counter.visit(); // Every candidate checked counts, matching or not
+                    return SortedNameIndex.fold(candidate.getName()).contains(foldedPattern)
+                            && (wholeTree || candidate.isDescendantOf(directory));
+                })
+                .map(FileSystemItem::getName)
+                .iterator();
     }
 
-    // Helper function to locate a file or folder by name
-    private FileSystemItem locateItem(String name) {
-        return locateItemRecursively(rootDirectory, name);
+    // Folds with the same locale-independent rules as the indexes, so every search path agrees
+    private static Predicate<String> likeMatchFilter(String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return name -> SortedNameIndex.fold(name).contains(foldedPattern);
     }
 
-    private FileSystemItem locateItemRecursively(Folder directory, String name) {
-        if (directory.getName().equals(name)) {
-            return directory;
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern namePattern = NamePattern.compile(query, searchType);
+        Folder directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Folder not found
+        }
+        if (limit == 0) {
+            return Collections.emptyList();
+        }
+        if (directory == rootDirectory) {
+            return scanNameIndex(namePattern, directory, limit, Long.MAX_VALUE, null); // Every indexed file is below the root
+        }
+        if (namePattern.getLiteralPrefix().isEmpty()) {
+            // Nothing narrows the index, so walk the subtree instead of checking every file's ancestry
+            return TreeTraversal.firstInNameOrder(TreeTraversal.matchingFiles(TREE_SHAPE, directory, namePattern::matches), limit);
         }
 
-        for (FileSystemItem item : directory.getItems()) {
-            if (item.getName().equals(name)) {
-                return item;
+        // The index yields matches from the whole tree, and the folder may hold only a few of
+        // them. Take turns scanning the index and walking the folder with doubling budgets, so
+        // the search costs a small multiple of whichever of the two finishes sooner
+        Map<Folder, Boolean> insideByFolder = new IdentityHashMap<>();
+        for (long budget = INITIAL_SEARCH_BUDGET; ; budget *= 2) {
+            List<String> matchingFiles = scanNameIndex(namePattern, directory, limit, budget, insideByFolder);
+            if (matchingFiles != null) {
+                return matchingFiles;
+            }
+            matchingFiles = TreeTraversal.matchingFilesWithin(TREE_SHAPE, directory, namePattern::matches, budget);
+            if (matchingFiles != null) {
+                return TreeTraversal.firstInNameOrder(matchingFiles.iterator(), limit);
             }
+        }
+    }
 
-            if (item.isFolder()) {
-                FileSystemItem locatedItem = locateItemRecursively((Folder) item, name);
-                if (locatedItem != null) {
-                    return locatedItem;
+    /**
+     * Collects the first limit matches below a folder from the name index. The index yields names
+     * in folded order, so the scan stops once it is past the folded name of the limit-th match;
+     * names that fold alike are then put in order.
+     *
+     * @param insideByFolder folders already known to lie inside or outside the directory, or null
+     *        when the directory is the root
+     * @return the matches, or null once maxItems indexed files have been checked without finishing
+     */
+    private List<String> scanNameIndex(NamePattern namePattern, Folder directory, int limit, long maxItems,
+            Map<Folder, Boolean> insideByFolder) {
+        List<String> matchingFiles = new ArrayList<>();
+        String[] lastFoldedName = new String[1];
+        long[] checked = new long[1];
+        boolean[] finished = {true};
+        TraversalCounter counter = TraversalCounter.current();
+        fileNameIndex.forEachMatch(namePattern, item -> {
+            if (matchingFiles.size() >= limit && !SortedNameIndex.fold(item.getName()).equals(lastFoldedName[0])) {
+                return false;
+            }
+            if (checked[0]++ == maxItems) {
+                finished[0] = false;
+                return false;
+            }
+            counter.visit();
+            if (insideByFolder == null || isInside(item, directory, insideByFolder)) {
+                matchingFiles.add(item.getName());
+                if (matchingFiles.size() == limit) {
+                    lastFoldedName[0] = SortedNameIndex.fold(item.getName());
                 }
             }
+            return true;
+        });
+        return finished[0] ? TreeTraversal.firstInNameOrder(matchingFiles.iterator(), limit) : null;
+    }
+
+    // Walks up only until it meets a folder it has already placed, so a scan climbs each folder's ancestry once
+    private static boolean isInside(FileSystemItem item, Folder directory, Map<Folder, Boolean> insideByFolder) {
+        List<Folder> climbed = new ArrayList<>();
+        Folder folder = item.getParent();
+        Boolean inside = null;
+        while (inside == null) {
+            if (folder == null || folder == directory) {
+                inside = folder != null;
+            } else if ((inside = insideByFolder.get(folder)) == null) {
+                climbed.add(folder);
+                folder = folder.getParent();
+            }
         }
-        return null;
+        for (Folder placed : climbed) {
+            insideByFolder.put(placed, inside);
+        }
+        return inside;
     }
 
-    // Helper function to find the parent folder of a given file or folder
-    private Folder locateParentFolder(String itemName) {
-        return locateParentFolderRecursively(rootDirectory, itemName);
+    // Helper function to locate a folder by name
+    private Folder searchFolder(String folderName) {
+        FileSystemItem item = locateItem(folderName);
+        return item != null && item.isFolder() ? (Folder) item : null;
     }
 
-    private Folder locateParentFolderRecursively(Folder directory, String itemName) {
-        for (FileSystemItem item : directory.getItems()) {
-            if (item.getName().equals(itemName)) {
-                return directory;
-            }
-            if (item.isFolder()) {
-                Folder foundParent = locateParentFolderRecursively((Folder) item, itemName);
-                if (foundParent != null) {
-                    return foundParent;
-                }
-            }
+    // Helper function to locate a file or folder by name or absolute path
+    FileSystemItem locateItem(String name) {
+        if (FileSystemPaths.isPath(name)) {
+            return FileSystemPaths.resolve(name, rootDirectory, pathCache, Folder::getItem);
         }
-        return null;
+        return itemsByName.get(name);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.filemanager.service;
+
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.Folder;
+
+/**
+ * Helpers for absolute paths such as "/projects/2026/q3". A path starts at the root folder,
+ * whose own name is not part of it, and names one child per "/"-separated component. Trailing
+ * separators are ignored, so "/" and "" after normalization both denote the root.
+ */
+final class FileSystemPaths {
+    static final char SEPARATOR = '/';
+    static final String ROOT = "/";
+
+    private FileSystemPaths() {
+    }
+
+    static boolean isPath(String nameOrPath) {
+        return !nameOrPath.isEmpty() && nameOrPath.charAt(0) == SEPARATOR;
+    }
+
+    static String normalize(String path) {
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        return end == path.length() ? path : path.substring(0, end);
+    }
+
+    /**
+     * @return the path of the folder holding the last component of a normalized, non-root path
+     */
+    static String parentOf(String path) {
+        int slash = path.lastIndexOf(SEPARATOR);
+        return slash == 0 ? ROOT : path.substring(0, slash);
+    }
+
+    /**
+     * @return the absolute path of an item, built by walking its parent chain
+     */
+    static String pathOf(FileSystemItem item) {
+        if (item.getParent() == null) {
+            return ROOT;
+        }
+        StringBuilder path = new StringBuilder();
+        for (FileSystemItem current = item; current.getParent() != null; current = current.getParent()) {
+            path.insert(0, current.getName()).insert(0, SEPARATOR);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Resolves a path through the cache: a hit on the path itself or on its parent folder
+     * leaves at most one child lookup, and a miss walks down from the root one child lookup per
+     * component. Resolved folders are cached; files are not.
+     *
+     * @return the item the path names, or null if some component does not exist
+     */
+    static FileSystemItem resolve(String path, Folder root, PathCache<Folder> cache, ChildLookup children) {
+        String normalized = normalize(path);
+        if (normalized.equals(ROOT)) {
+            return root;
+        }
+        Folder cached = cache.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.generation();
+        String parentPath = parentOf(normalized);
+        Folder cachedParent = parentPath.equals(ROOT) ? null : cache.get(parentPath);
+        FileSystemItem item = cachedParent != null
+                ? resolveFrom(cachedParent, normalized, parentPath.length(), children)
+                : resolveFrom(root, normalized, 0, children);
+        if (item != null && item.isFolder()) {
+            cache.put(normalized, (Folder) item, generation);
+        }
+        return item;
+    }
+
+    // Follows the components after the separator at fromIndex, starting from the given folder
+    private static FileSystemItem resolveFrom(Folder start, String path, int fromIndex, ChildLookup children) {
+        FileSystemItem item = start;
+        for (int separator = fromIndex; separator < path.length(); ) {
+            if (!item.isFolder()) {
+                return null; // A file cannot have children
+            }
+            int nextSeparator = path.indexOf(SEPARATOR, separator + 1);
+            if (nextSeparator < 0) {
+                nextSeparator = path.length();
+            }
+            item = children.child((Folder) item, path.substring(separator + 1, nextSeparator));
+            if (item == null) {
+                return null;
+            }
+            separator = nextSeparator;
+        }
+        return item;
+    }
+
+    interface ChildLookup {
+        FileSystemItem child(Folder folder, String name);
+    }
+}
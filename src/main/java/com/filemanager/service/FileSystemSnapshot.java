@@ -0,0 +1,326 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.filemanager.collections.PersistentHashMap;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FolderStats;
+
+/**
+ * Immutable, point-in-time view of a {@link SnapshotFileSystemManager} tree.
+ * <p>
+ * A snapshot never changes after it is taken, so it can be read by any number of threads
+ * without locking while writers keep publishing newer versions. Several reads against the same
+ * snapshot see one consistent tree. A version stays in memory only while a snapshot of it is
+ * reachable; once the last reader drops it, the nodes it does not share with newer versions
+ * are left to the garbage collector.
+ */
+public final class FileSystemSnapshot {
+    private final TreeShape<SnapshotNode> treeShape = new TreeShape<SnapshotNode>() {
+        @Override
+        public Iterator<SnapshotNode> children(SnapshotNode folder) {
+            return childNodes(folder);
+        }
+
+        @Override
+        public String name(SnapshotNode node) {
+            return node.name;
+        }
+
+        @Override
+        public boolean isFolder(SnapshotNode node) {
+            return node.folder;
+        }
+    };
+
+    private final PersistentHashMap<Integer, SnapshotNode> nodesById;
+    private final int rootId;
+    private final Map<String, Integer> idsByName;
+
+    FileSystemSnapshot(PersistentHashMap<Integer, SnapshotNode> nodesById, int rootId, Map<String, Integer> idsByName) {
+        this.nodesById = nodesById;
+        this.rootId = rootId;
+        this.idsByName = idsByName;
+    }
+
+    PersistentHashMap<Integer, SnapshotNode> nodesById() {
+        return nodesById;
+    }
+
+    int rootId() {
+        return rootId;
+    }
+
+    SnapshotNode node(int id) {
+        return nodesById.get(id);
+    }
+
+    SnapshotNode root() {
+        return nodesById.get(rootId);
+    }
+
+    /**
+     * @return the names of the files and folders directly within the folder, in insertion order
+     */
+    public List<String> listContents(String folderName) {
+        SnapshotNode directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Directory not found
+        }
+
+        List<String> items = new ArrayList<>(directory.childCount());
+        directory.childIds.forEach(childId -> {
+            if (childId != null) {
+                items.add(node(childId).name);
+            }
+        });
+        return items;
+    }
+
+    /**
+     * Lists one page of a folder, as described by
+     * {@link FileSystemManager#listContents(String, String, int, SortOrder)}. Insertion-order pages
+     * cost O(limit) after a binary search on the order keys; snapshots keep no name-sorted
+     * structure, so a name-order page selects its entries in a single O(n log limit) pass.
+     */
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        SnapshotNode directory = searchFolder(folderName);
+        if (directory == null) {
+            return ContentPage.empty(); // Directory not found
+        }
+        return sortOrder == SortOrder.NAME
+                ? pageByName(directory, PageCursor.nameOf(cursor), limit)
+                : pageByInsertion(directory, PageCursor.orderKeyOf(cursor), limit);
+    }
+
+    private ContentPage pageByInsertion(SnapshotNode directory, long afterKey, int limit) {
+        int slot = directory.firstSlotAfter(afterKey);
+        Iterator<Integer> childIds = directory.childIds.iterator(slot);
+        Iterator<Long> childKeys = directory.childKeys.iterator(slot);
+        List<String> names = new ArrayList<>(Math.min(limit, directory.childCount()));
+        long lastKey = afterKey;
+        while (childIds.hasNext()) {
+            Integer childId = childIds.next();
+            long childKey = childKeys.next();
+            if (childId == null) {
+                continue;
+            }
+            if (names.size() == limit) {
+                return new ContentPage(names, PageCursor.afterOrderKey(lastKey));
+            }
+            names.add(node(childId).name);
+            lastKey = childKey;
+        }
+        return new ContentPage(names, null);
+    }
+
+    private ContentPage pageByName(SnapshotNode directory, String afterName, int limit) {
+        // Keep the limit + 1 smallest names past the cursor; the extra one tells whether a page follows
+        PriorityQueue<String> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+        for (Iterator<SnapshotNode> children = childNodes(directory); children.hasNext(); ) {
+            String name = children.next().name;
+            if (afterName == null || name.compareTo(afterName) > 0) {
+                smallest.offer(name);
+                if (smallest.size() > PageCursor.lookAhead(limit)) {
+                    smallest.poll();
+                }
+            }
+        }
+        List<String> names = new ArrayList<>(smallest);
+        Collections.sort(names);
+        if (names.size() <= limit) {
+            return new ContentPage(names, null);
+        }
+        names = names.subList(0, limit);
+        return new ContentPage(new ArrayList<>(names), PageCursor.afterName(names.get(limit - 1)));
+    }
+
+    /**
+     * @return the figures for everything below the folder, counted by walking it, or null if it does not exist
+     */
+    public FolderStats getFolderStats(String folderName) {
+        SnapshotNode directory = searchFolder(folderName);
+        return directory == null ? null : TreeTraversal.folderStats(treeShape, directory, node -> node.size);
+    }
+
+    /**
+     * @return the directory structure, in the same format as {@link FileSystemManager#listDirectoryStructure()}
+     */
+    public List<String> listDirectoryStructure() {
+        return TreeTraversal.drain(iterateDirectoryStructure());
+    }
+
+    /**
+     * @return the lines of {@link #listDirectoryStructure()}, walked with up to the given number of threads
+     */
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return ParallelTraversal.directoryStructure(treeShape, root(), parallelism);
+    }
+
+    /**
+     * @return a lazy iterator over the lines of {@link #listDirectoryStructure()}
+     */
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(treeShape, root());
+    }
+
+    /**
+     * Writes the directory structure to the output, one newline-terminated line per entry.
+     */
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        TreeTraversal.writeDirectoryStructure(treeShape, root(), out);
+    }
+
+    /**
+     * @return the file's name if the folder directly holds it (ignoring case), null otherwise
+     */
+    public String searchFileExactMatch(String folderName, String fileName) {
+        SnapshotNode directory = searchFolder(folderName);
+        if (directory == null) {
+            return null; // Folder does not exist
+        }
+
+        Integer sameCaseId = directory.childId(fileName);
+        if (sameCaseId != null && !node(sameCaseId).folder) {
+            return fileName;
+        }
+        String[] match = new String[1];
+        directory.childIds.forEach(childId -> {
+            if (match[0] == null && childId != null) {
+                SnapshotNode item = node(childId);
+                if (!item.folder && item.name.equalsIgnoreCase(fileName)) {
+                    match[0] = item.name;
+                }
+            }
+        });
+        return match[0];
+    }
+
+    /**
+     * @return the names of the files below the folder whose names contain the pattern, ignoring case
+     */
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return TreeTraversal.drain(iterateFileLikeMatch(folderName, pattern));
+    }
+
+    /**
+     * @return the results of {@link #searchFileLikeMatch(String, String)}, walked with up to the given number of threads
+     */
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        SnapshotNode directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyList(); // Folder not found
+        }
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return ParallelTraversal.matchingFiles(treeShape, directory, name -> SortedNameIndex.fold(name).contains(foldedPattern), parallelism);
+    }
+
+    /**
+     * @return a lazy iterator over the results of {@link #searchFileLikeMatch(String, String)}
+     */
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return matchingFiles(folderName, name -> SortedNameIndex.fold(name).contains(foldedPattern));
+    }
+
+    /**
+     * @return the names of the files below the folder matching the query, ordered by case-insensitive name
+     */
+    public List<String> searchFiles(String folderName, String query, SearchType searchType) {
+        return searchFiles(folderName, query, searchType, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the first limit files below the folder matching the query, in case-insensitive name order
+     */
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern namePattern = NamePattern.compile(query, searchType);
+        return TreeTraversal.firstInNameOrder(matchingFiles(folderName, namePattern::matches), limit);
+    }
+
+    private Iterator<String> matchingFiles(String folderName, Predicate<String> nameFilter) {
+        SnapshotNode directory = searchFolder(folderName);
+        if (directory == null) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+        return TreeTraversal.matchingFiles(treeShape, directory, nameFilter);
+    }
+
+    // Iterates a folder's children, skipping the holes left by children that moved out
+    private Iterator<SnapshotNode> childNodes(SnapshotNode folder) {
+        Iterator<Integer> childIds = folder.childIds.iterator();
+        return new Iterator<SnapshotNode>() {
+            private SnapshotNode next = advance();
+
+            private SnapshotNode advance() {
+                while (childIds.hasNext()) {
+                    Integer childId = childIds.next();
+                    if (childId != null) {
+                        return node(childId);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SnapshotNode next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                SnapshotNode current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    // Helper function to locate a folder by name; names registered after this snapshot resolve to nothing
+    SnapshotNode searchFolder(String folderName) {
+        SnapshotNode item = locateItem(folderName);
+        return item != null && item.folder ? item : null;
+    }
+
+    // Paths resolve one child lookup per component; snapshots are immutable, so no cache is needed
+    SnapshotNode locateItem(String name) {
+        if (!FileSystemPaths.isPath(name)) {
+            Integer id = idsByName.get(name);
+            return id == null ? null : nodesById.get(id);
+        }
+        String path = FileSystemPaths.normalize(name);
+        SnapshotNode item = root();
+        for (int separator = 0; separator < path.length() && !path.equals(FileSystemPaths.ROOT); ) {
+            int nextSeparator = path.indexOf(FileSystemPaths.SEPARATOR, separator + 1);
+            if (nextSeparator < 0) {
+                nextSeparator = path.length();
+            }
+            Integer childId = item.folder ? item.childId(path.substring(separator + 1, nextSeparator)) : null;
+            if (childId == null) {
+                return null;
+            }
+            item = node(childId);
+            separator = nextSeparator;
+        }
+        return item;
+    }
+}
@@ -0,0 +1,19 @@
+package com.filemanager.service;
+
+import java.util.List;
+
+import com.filemanager.models.FileSystemEvent;
+
+/**
+ * Receives the changes under a watched folder, in batches.
+ */
+@FunctionalInterface
+public interface FileSystemWatcher {
+    /**
+     * Called on a delivery thread, never concurrently for the same subscription, with the
+     * changes made since the previous batch in the order they happened.
+     *
+     * @param events the changes, never empty
+     */
+    void onEvents(List<FileSystemEvent> events);
+}
@@ -0,0 +1,450 @@
+package com.filemanager.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
+/**
+ * Read-only {@link FileSystemManager} served straight from a memory-mapped file written by
+ * {@link FileSystemManagerImpl#writeMappedSnapshot}.
+ * <p>
+ * Opening maps the file's sections and reads its header, nothing more, so it takes the same
+ * time for any tree size, and the tree stays off the heap in the page cache. Items are plain
+ * int ids into the mapping; no File or Folder objects are built, and only the names a call
+ * returns are decoded. Name and path lookups binary-search the sorted name table and each
+ * folder's name-sorted children. Searches below a folder scan its pre-order id range instead
+ * of walking the tree.
+ * <p>
+ * Adds and moves throw {@link UnsupportedOperationException}. The mapping is immutable, so the
+ * manager is safe for concurrent use, and its iterators never observe changes. Insertion-order
+ * cursors hold a child's position in the file, so they are only valid for the file they came from.
+ */
+public class MappedFileSystemManager implements FileSystemManager, Closeable {
+    private final FileChannel channel;
+    private final IntBuffer nodes;
+    private final LongBuffer fileSizes;
+    private final IntBuffer childIndex;
+    private final IntBuffer nameTable;
+    private final ByteBuffer nameBytes;
+    private final int nameCount;
+    private final TreeShape<Integer> treeShape = new TreeShape<Integer>() {
+        @Override
+        public Iterator<Integer> children(Integer folder) {
+            return childIds(folder);
+        }
+
+        @Override
+        public String name(Integer node) {
+            return nameOf(node);
+        }
+
+        @Override
+        public boolean isFolder(Integer node) {
+            return isFolderNode(node);
+        }
+    };
+
+    private MappedFileSystemManager(FileChannel channel) throws IOException {
+        this.channel = channel;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MappedTreeImage.HEADER_BYTES);
+        if (header.getInt(0) != MappedTreeImage.MAGIC) {
+            throw new IOException("Not a mapped file system image");
+        }
+        int nodeCount = header.getInt(4);
+        int childIndexLength = header.getInt(8);
+        this.nameCount = header.getInt(12);
+        int nameBytesLength = header.getInt(16);
+
+        long position = MappedTreeImage.HEADER_BYTES;
+        long nodesBytes = (long) nodeCount * MappedTreeImage.NODE_INTS * Integer.BYTES;
+        long fileSizesBytes = (long) nodeCount * Long.BYTES;
+        long childIndexBytes = (long) childIndexLength * Integer.BYTES;
+        long nameTableBytes = (2L * nameCount + 1) * Integer.BYTES;
+        if (position + nodesBytes + fileSizesBytes + childIndexBytes + nameTableBytes + nameBytesLength != channel.size()) {
+            throw new IOException("Truncated or corrupt mapped file system image");
+        }
+        this.nodes = map(position, nodesBytes).asIntBuffer();
+        position += nodesBytes;
+        this.fileSizes = map(position, fileSizesBytes).asLongBuffer();
+        position += fileSizesBytes;
+        this.childIndex = map(position, childIndexBytes).asIntBuffer();
+        position += childIndexBytes;
+        this.nameTable = map(position, nameTableBytes).asIntBuffer();
+        position += nameTableBytes;
+        this.nameBytes = map(position, nameBytesLength);
+    }
+
+    /**
+     * Maps a file written by {@link FileSystemManagerImpl#writeMappedSnapshot}.
+     *
+     * @param file the image
+     * @return a read-only manager over the image
+     * @throws IOException if the file cannot be mapped or is not a complete image
+     */
+    public static MappedFileSystemManager open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedFileSystemManager(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once the manager is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        throw new UnsupportedOperationException("Mapped trees are read-only");
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        throw new UnsupportedOperationException("Mapped trees are read-only");
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        throw new UnsupportedOperationException("Mapped trees are read-only");
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return null; // Directory not found
+        }
+        return TreeTraversal.folderStats(treeShape, directory, fileSizes::get);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return Collections.emptyList(); // Directory not found
+        }
+
+        int childCount = childCount(directory);
+        List<String> items = new ArrayList<>(childCount);
+        for (int position = 0; position < childCount; position++) {
+            items.add(nameOf(childAt(directory, position)));
+        }
+        return items;
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return ContentPage.empty(); // Directory not found
+        }
+
+        // Children never change, so a position in the child index serves as the order key
+        int childCount = childCount(directory);
+        int first;
+        if (sortOrder == SortOrder.NAME) {
+            String afterName = PageCursor.nameOf(cursor);
+            first = afterName == null ? 0 : firstNameAfter(directory, afterName);
+        } else {
+            first = (int) Math.max(0, Math.min(PageCursor.orderKeyOf(cursor) + 1, childCount));
+        }
+        int end = (int) Math.min((long) first + limit, childCount);
+        List<String> names = new ArrayList<>(end - first);
+        for (int position = first; position < end; position++) {
+            names.add(nameOf(sortOrder == SortOrder.NAME ? childByNameAt(directory, position) : childAt(directory, position)));
+        }
+        if (end == childCount) {
+            return new ContentPage(names, null);
+        }
+        return new ContentPage(names, sortOrder == SortOrder.NAME
+                ? PageCursor.afterName(names.get(names.size() - 1))
+                : PageCursor.afterOrderKey(end - 1));
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        return TreeTraversal.drain(iterateDirectoryStructure());
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return ParallelTraversal.directoryStructure(treeShape, 0, parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(treeShape, 0);
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        TreeTraversal.writeDirectoryStructure(treeShape, 0, out);
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return null; // Folder does not exist
+        }
+
+        // Same-case names resolve through the name-sorted children; otherwise compare case-insensitively
+        int sameCase = childNamed(directory, fileName);
+        if (sameCase >= 0 && !isFolderNode(sameCase)) {
+            return fileName;
+        }
+        for (int position = 0, childCount = childCount(directory); position < childCount; position++) {
+            int child = childAt(directory, position);
+            if (!isFolderNode(child)) {
+                String name = nameOf(child);
+                if (name.equalsIgnoreCase(fileName)) {
+                    return name; // Found exact match
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return TreeTraversal.drain(iterateFileLikeMatch(folderName, pattern));
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return Collections.emptyList(); // Folder not found
+        }
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return ParallelTraversal.matchingFiles(treeShape, directory, name -> SortedNameIndex.fold(name).contains(foldedPattern), parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return matchingFiles(folderName, name -> SortedNameIndex.fold(name).contains(foldedPattern));
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern namePattern = NamePattern.compile(query, searchType);
+        return TreeTraversal.firstInNameOrder(matchingFiles(folderName, namePattern::matches), limit);
+    }
+
+    // Scans the folder's pre-order id range, which holds exactly its subtree, in directory order
+    private Iterator<String> matchingFiles(String folderName, Predicate<String> nameFilter) {
+        int directory = searchFolder(folderName);
+        if (directory < 0) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+        int end = node(directory, MappedTreeImage.SUBTREE_END_FIELD);
+        TraversalCounter counter = TraversalCounter.current();
+        return new Iterator<String>() {
+            private int position = directory + 1;
+            private String next = advance();
+
+            private String advance() {
+                while (position < end) {
+                    int id = position++;
+                    counter.visit();
+                    if (!isFolderNode(id)) {
+                        String name = nameOf(id);
+                        if (nameFilter.test(name)) {
+                            return name;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private int node(int id, int field) {
+        return nodes.get(id * MappedTreeImage.NODE_INTS + field);
+    }
+
+    private boolean isFolderNode(int id) {
+        return (node(id, MappedTreeImage.FLAGS_FIELD) & MappedTreeImage.FOLDER_FLAG) != 0;
+    }
+
+    private int childCount(int folder) {
+        return childIndex.get(node(folder, MappedTreeImage.CHILDREN_FIELD));
+    }
+
+    private int childAt(int folder, int position) {
+        return childIndex.get(node(folder, MappedTreeImage.CHILDREN_FIELD) + 1 + position);
+    }
+
+    private int childByNameAt(int folder, int position) {
+        int offset = node(folder, MappedTreeImage.CHILDREN_FIELD);
+        return childIndex.get(offset + 1 + childIndex.get(offset) + position);
+    }
+
+    private Iterator<Integer> childIds(int folder) {
+        int childCount = childCount(folder);
+        return new Iterator<Integer>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < childCount;
+            }
+
+            @Override
+            public Integer next() {
+                if (position >= childCount) {
+                    throw new NoSuchElementException();
+                }
+                return childAt(folder, position++);
+            }
+        };
+    }
+
+    // Binary search over the name-sorted children; -1 if no child has the name
+    private int childNamed(int folder, String name) {
+        int low = 0;
+        int high = childCount(folder) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int child = childByNameAt(folder, middle);
+            int comparison = nameOf(child).compareTo(name);
+            if (comparison == 0) {
+                return child;
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return -1;
+    }
+
+    // The position of the first name-sorted child whose name sorts after the given one
+    private int firstNameAfter(int folder, String name) {
+        int low = 0;
+        int high = childCount(folder);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (nameOf(childByNameAt(folder, middle)).compareTo(name) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private String nameOf(int id) {
+        return decodeName(node(id, MappedTreeImage.NAME_FIELD));
+    }
+
+    private String decodeName(int nameId) {
+        int start = nameTable.get(2 * nameId);
+        byte[] bytes = new byte[nameTable.get(2 * nameId + 2) - start];
+        ByteBuffer view = nameBytes.duplicate();
+        ((Buffer) view).position(start); // Buffer.position(int) exists on Java 8; the ByteBuffer override does not
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Helper function to locate a folder by name; -1 if there is none
+    private int searchFolder(String folderName) {
+        int item = locateItem(folderName);
+        return item >= 0 && isFolderNode(item) ? item : -1;
+    }
+
+    // Helper function to locate a file or folder by name or absolute path; -1 if there is none
+    private int locateItem(String name) {
+        if (!FileSystemPaths.isPath(name)) {
+            int nameId = nameIdOf(name);
+            return nameId < 0 ? -1 : nameTable.get(2 * nameId + 1);
+        }
+        String path = FileSystemPaths.normalize(name);
+        int item = 0;
+        for (int separator = 0; separator < path.length() && !path.equals(FileSystemPaths.ROOT); ) {
+            int nextSeparator = path.indexOf(FileSystemPaths.SEPARATOR, separator + 1);
+            if (nextSeparator < 0) {
+                nextSeparator = path.length();
+            }
+            item = isFolderNode(item) ? childNamed(item, path.substring(separator + 1, nextSeparator)) : -1;
+            if (item < 0) {
+                return -1;
+            }
+            separator = nextSeparator;
+        }
+        return item;
+    }
+
+    // Binary search over the sorted name table
+    private int nameIdOf(String name) {
+        int low = 0;
+        int high = nameCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = decodeName(middle).compareTo(name);
+            if (comparison == 0) {
+                return middle;
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,191 @@
+package com.filemanager.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.filemanager.models.File;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.Folder;
+
+/**
+ * Writes the random-access binary tree format read by {@link MappedFileSystemManager}.
+ * <p>
+ * Items are numbered in pre-order, so every folder's subtree is the contiguous id range from
+ * the folder to its subtree end, and a subtree search is a linear scan of that range. After a
+ * fixed header, the file holds five sections:
+ * <ul>
+ *     <li>the node table: four ints per item, namely name id, flags, subtree end and the
+ *     offset of its children in the child index (-1 for files);</li>
+ *     <li>the size table: one long per item, the file's size in bytes (0 for folders);</li>
+ *     <li>the child index: per folder, the child count, the child ids in insertion order, then
+ *     the same ids sorted by name;</li>
+ *     <li>the name table: two ints per distinct name, in name order, namely the offset of its
+ *     bytes and the id of the item that owns the name, then one final offset;</li>
+ *     <li>the name bytes: every distinct name once, as UTF-8.</li>
+ * </ul>
+ * Every int and long is big-endian, and each section is limited to 2 GB.
+ */
+final class MappedTreeImage {
+    static final int MAGIC = 0x46534d32; // "FSM2"
+    static final int HEADER_BYTES = 32;
+    static final int NODE_INTS = 4;
+    static final int NAME_FIELD = 0;
+    static final int FLAGS_FIELD = 1;
+    static final int SUBTREE_END_FIELD = 2;
+    static final int CHILDREN_FIELD = 3;
+    static final int FOLDER_FLAG = 1;
+    static final int NO_CHILDREN = -1;
+
+    private MappedTreeImage() {
+    }
+
+    static void write(Folder rootDirectory, Predicate<FileSystemItem> ownsName, Path file) throws IOException {
+        // Number the items in pre-order, remembering each one's parent
+        List<FileSystemItem> items = new ArrayList<>();
+        int[] parents = new int[16];
+        Deque<Iterator<FileSystemItem>> stack = new ArrayDeque<>();
+        Deque<Integer> stackIds = new ArrayDeque<>();
+        items.add(rootDirectory);
+        parents[0] = -1;
+        stack.push(rootDirectory.getItems().iterator());
+        stackIds.push(0);
+        while (!stack.isEmpty()) {
+            Iterator<FileSystemItem> siblings = stack.peek();
+            if (!siblings.hasNext()) {
+                stack.pop();
+                stackIds.pop();
+                continue;
+            }
+            FileSystemItem item = siblings.next();
+            int id = items.size();
+            items.add(item);
+            if (id == parents.length) {
+                parents = Arrays.copyOf(parents, id * 2);
+            }
+            parents[id] = stackIds.peek();
+            if (item.isFolder()) {
+                stack.push(((Folder) item).getItems().iterator());
+                stackIds.push(id);
+            }
+        }
+        int nodeCount = items.size();
+
+        // Subtree ends, and each folder's slice of the child index
+        int[] subtreeEnds = new int[nodeCount];
+        for (int id = nodeCount - 1; id >= 0; id--) {
+            subtreeEnds[id] = Math.max(subtreeEnds[id], id + 1);
+            if (id > 0) {
+                subtreeEnds[parents[id]] = Math.max(subtreeEnds[parents[id]], subtreeEnds[id]);
+            }
+        }
+        int[] childOffsets = new int[nodeCount];
+        int childIndexLength = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            if (items.get(id).isFolder()) {
+                childOffsets[id] = childIndexLength;
+                childIndexLength += 1 + 2 * ((Folder) items.get(id)).getItemCount();
+            } else {
+                childOffsets[id] = NO_CHILDREN;
+            }
+        }
+        int[] childIndex = new int[childIndexLength];
+        int[] childrenWritten = new int[nodeCount];
+        for (int id = 1; id < nodeCount; id++) {
+            int parentOffset = childOffsets[parents[id]];
+            childIndex[parentOffset + 1 + childrenWritten[parents[id]]++] = id;
+        }
+        for (int id = 0; id < nodeCount; id++) {
+            if (childOffsets[id] != NO_CHILDREN) {
+                int offset = childOffsets[id];
+                int count = childrenWritten[id];
+                childIndex[offset] = count;
+                Integer[] byName = new Integer[count];
+                for (int i = 0; i < count; i++) {
+                    byName[i] = childIndex[offset + 1 + i];
+                }
+                Arrays.sort(byName, (a, b) -> items.get(a).getName().compareTo(items.get(b).getName()));
+                for (int i = 0; i < count; i++) {
+                    childIndex[offset + 1 + count + i] = byName[i];
+                }
+            }
+        }
+
+        // Distinct names in name order, each with the item that owns it
+        Map<String, Integer> nameIds = new HashMap<>();
+        for (FileSystemItem item : items) {
+            nameIds.putIfAbsent(item.getName(), 0);
+        }
+        String[] names = nameIds.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        for (int nameId = 0; nameId < names.length; nameId++) {
+            nameIds.put(names[nameId], nameId);
+        }
+        int[] owners = new int[names.length];
+        for (int id = 0; id < nodeCount; id++) {
+            if (ownsName.test(items.get(id))) {
+                owners[nameIds.get(items.get(id).getName())] = id;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            byte[][] nameBytes = new byte[names.length][];
+            long nameBytesLength = 0;
+            for (int nameId = 0; nameId < names.length; nameId++) {
+                nameBytes[nameId] = names[nameId].getBytes(StandardCharsets.UTF_8);
+                nameBytesLength += nameBytes[nameId].length;
+            }
+            if (nameBytesLength > Integer.MAX_VALUE) {
+                throw new IOException("Names exceed 2 GB");
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(nodeCount);
+            out.writeInt(childIndexLength);
+            out.writeInt(names.length);
+            out.writeInt((int) nameBytesLength);
+            out.write(new byte[HEADER_BYTES - 5 * Integer.BYTES]);
+            for (int id = 0; id < nodeCount; id++) {
+                FileSystemItem item = items.get(id);
+                out.writeInt(nameIds.get(item.getName()));
+                out.writeInt(item.isFolder() ? FOLDER_FLAG : 0);
+                out.writeInt(subtreeEnds[id]);
+                out.writeInt(childOffsets[id]);
+            }
+            for (FileSystemItem item : items) {
+                out.writeLong(item.isFolder() ? 0L : ((File) item).getSize());
+            }
+            for (int value : childIndex) {
+                out.writeInt(value);
+            }
+            int nameOffset = 0;
+            for (int nameId = 0; nameId < names.length; nameId++) {
+                out.writeInt(nameOffset);
+                out.writeInt(owners[nameId]);
+                nameOffset += nameBytes[nameId].length;
+            }
+            out.writeInt(nameOffset);
+            for (byte[] name : nameBytes) {
+                out.write(name);
+            }
+            out.flush();
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.filemanager.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.Folder;
+
+/**
+ * Per-batch state shared by the tree-based managers while they apply a list of operations.
+ * <p>
+ * The parent of each add is resolved once per batch and reused by every later add into the same
+ * folder. The first time a parent is resolved, the folder makes room for all the children the
+ * rest of the batch adds to it, so a bulk load grows each folder's storage once instead of
+ * doubling it step by step.
+ */
+final class OperationBatch {
+    private final Map<String, Integer> pendingAdds = new HashMap<>();
+    private final Map<String, Folder> resolvedParents = new HashMap<>();
+
+    OperationBatch(List<FileSystemOperation> operations) {
+        for (FileSystemOperation operation : operations) {
+            if (operation.getType() == OperationType.ADD) {
+                pendingAdds.merge(operation.getFolderName(), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Returns the parent folder of the next add into the given folder.
+     *
+     * @param folderName the add's parent folder name or path
+     * @param resolver looks the folder up when it has not been resolved yet in this batch
+     * @return the folder, or null if it does not exist (yet)
+     */
+    Folder parentFolder(String folderName, Function<String, Folder> resolver) {
+        int remainingAdds = pendingAdds.merge(folderName, -1, Integer::sum) + 1;
+        Folder parent = resolvedParents.get(folderName);
+        if (parent == null) {
+            parent = resolver.apply(folderName);
+            if (parent == null) {
+                return null; // An earlier add may still create it, so the miss is not remembered
+            }
+            resolvedParents.put(folderName, parent);
+            parent.ensureCapacity(remainingAdds);
+        }
+        return parent;
+    }
+
+    /**
+     * Records the outcome of a move. A path may resolve to a different folder after a move, so
+     * the resolved parents are forgotten whenever one is applied.
+     *
+     * @return the given status
+     */
+    OperationStatus moved(OperationStatus status) {
+        if (status == OperationStatus.APPLIED) {
+            resolvedParents.clear();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,97 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.Folder;
+
+/**
+ * Encodes and decodes the opaque cursors handed out by paginated listings.
+ * <p>
+ * An insertion-order cursor holds the order key of the last item returned, and a name-order
+ * cursor holds its name. Neither depends on positions, so adds between two page requests
+ * never shift a page: items are not repeated, and items present for the whole listing are
+ * not skipped.
+ */
+final class PageCursor {
+    private static final char INSERTION_PREFIX = 'i';
+    private static final char NAME_PREFIX = 'n';
+
+    private PageCursor() {
+    }
+
+    static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+    }
+
+    /**
+     * @return how many items to fetch for a page: one past the limit, to learn whether another
+     *         page follows, saturating at Integer.MAX_VALUE since no folder holds that many
+     */
+    static int lookAhead(int limit) {
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
+    }
+
+    static String afterOrderKey(long orderKey) {
+        return INSERTION_PREFIX + Long.toString(orderKey);
+    }
+
+    static String afterName(String name) {
+        return NAME_PREFIX + name;
+    }
+
+    /**
+     * @return the order key to resume after, or -1 to start from the beginning
+     */
+    static long orderKeyOf(String cursor) {
+        if (cursor == null) {
+            return -1L;
+        }
+        checkPrefix(cursor, INSERTION_PREFIX, SortOrder.INSERTION);
+        try {
+            return Long.parseLong(cursor.substring(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * @return the name to resume after, or null to start from the beginning
+     */
+    static String nameOf(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        checkPrefix(cursor, NAME_PREFIX, SortOrder.NAME);
+        return cursor.substring(1);
+    }
+
+    // Reads one page from a model folder; the caller guards the folder against concurrent changes
+    static ContentPage page(Folder directory, String cursor, int limit, SortOrder sortOrder) {
+        // Fetch one extra item to learn whether another page follows
+        List<FileSystemItem> items = sortOrder == SortOrder.NAME
+                ? directory.getItemsByNameAfter(nameOf(cursor), lookAhead(limit))
+                : directory.getItemsAfter(orderKeyOf(cursor), lookAhead(limit));
+        int pageSize = Math.min(limit, items.size());
+        List<String> names = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            names.add(items.get(i).getName());
+        }
+        if (items.size() <= limit) {
+            return new ContentPage(names, null);
+        }
+        FileSystemItem last = items.get(limit - 1);
+        return new ContentPage(names, sortOrder == SortOrder.NAME ? afterName(last.getName()) : afterOrderKey(last.getOrderKey()));
+    }
+
+    private static void checkPrefix(String cursor, char prefix, SortOrder sortOrder) {
+        if (cursor.isEmpty() || cursor.charAt(0) != prefix) {
+            throw new IllegalArgumentException("Cursor does not belong to a " + sortOrder + " listing: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.filemanager.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import com.filemanager.metrics.TraversalCounter;
+
+/**
+ * Fork-join versions of the {@link TreeTraversal} walks, for large subtrees.
+ * <p>
+ * Each task walks its subtree in pre-order, exactly like the sequential walk, until it has
+ * visited a threshold number of nodes. At that point the rest of its subtree is split: every
+ * folder still ahead of it becomes a forked task, while the files between them are handled in
+ * place. A task's output is a list of chunks in pre-order, with the chunks of its forked tasks
+ * joined in at the position of their folder, so the combined result is the same, in the same
+ * order, as the sequential walk. Subtrees smaller than the threshold are never split.
+ * <p>
+ * The nodes might not be safe to read from several threads at once. Callers must hold whatever
+ * read lock the sequential walk needs for the whole call.
+ * <p>
+ * More threads than processors cannot speed up a walk, so a parallelism above
+ * {@link #MAX_PARALLELISM} uses that many threads. This also bounds the number of pools.
+ */
+final class ParallelTraversal {
+    static final int DEFAULT_SPLIT_THRESHOLD = 8192;
+    static final int MAX_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // One pool per thread count up to MAX_PARALLELISM; the workers are daemon threads and retire when idle
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private ParallelTraversal() {
+    }
+
+    static <N> List<String> directoryStructure(TreeShape<N> shape, N root, int parallelism) {
+        return directoryStructure(shape, root, parallelism, DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    static <N> List<String> matchingFiles(TreeShape<N> shape, N folder, Predicate<String> nameFilter, int parallelism) {
+        return matchingFiles(shape, folder, nameFilter, parallelism, DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    /**
+     * Produces the lines of {@link FileSystemManager#listDirectoryStructure()}, walking the tree
+     * with up to the given number of threads.
+     */
+    static <N> List<String> directoryStructure(TreeShape<N> shape, N root, int parallelism, int splitThreshold) {
+        checkParallelism(parallelism);
+        if (parallelism == 1) {
+            return TreeTraversal.drain(TreeTraversal.directoryStructure(shape, root));
+        }
+        TraversalCounter.current().visit();
+        List<String> rootLine = new ArrayList<>(1);
+        rootLine.add("+ " + shape.name(root));
+        return walk(new WalkTask<>(shape, root, 1, null, splitThreshold, new LongAdder()), rootLine, parallelism);
+    }
+
+    /**
+     * Produces the names of the files below a folder whose names pass the filter, in directory
+     * order, walking the subtree with up to the given number of threads.
+     */
+    static <N> List<String> matchingFiles(TreeShape<N> shape, N folder, Predicate<String> nameFilter,
+            int parallelism, int splitThreshold) {
+        checkParallelism(parallelism);
+        if (parallelism == 1) {
+            return TreeTraversal.drain(TreeTraversal.matchingFiles(shape, folder, nameFilter));
+        }
+        return walk(new WalkTask<>(shape, folder, 1, nameFilter, splitThreshold, new LongAdder()), new ArrayList<>(), parallelism);
+    }
+
+    static void checkParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+    }
+
+    private static <N> List<String> walk(WalkTask<N> task, List<String> head, int parallelism) {
+        int threads = Math.min(parallelism, MAX_PARALLELISM);
+        List<List<String>> chunks = POOLS.computeIfAbsent(threads, ForkJoinPool::new).invoke(task);
+        TraversalCounter.current().visit(task.visited.sum());
+        int size = head.size();
+        for (List<String> chunk : chunks) {
+            size += chunk.size();
+        }
+        List<String> result = new ArrayList<>(size);
+        result.addAll(head);
+        for (List<String> chunk : chunks) {
+            result.addAll(chunk);
+        }
+        return result;
+    }
+
+    // Walks the subtree below a folder; a null filter produces structure lines instead of file names
+    private static final class WalkTask<N> extends RecursiveTask<List<List<String>>> {
+        private static final long serialVersionUID = 1L; // Never serialized; RecursiveTask is Serializable
+        private final TreeShape<N> shape;
+        private final N folder;
+        private final int childDepth;
+        private final Predicate<String> nameFilter;
+        private final int splitThreshold;
+        private final LongAdder visited;
+
+        WalkTask(TreeShape<N> shape, N folder, int childDepth, Predicate<String> nameFilter,
+                int splitThreshold, LongAdder visited) {
+            this.shape = shape;
+            this.folder = folder;
+            this.childDepth = childDepth;
+            this.nameFilter = nameFilter;
+            this.splitThreshold = splitThreshold;
+            this.visited = visited;
+        }
+
+        @Override
+        protected List<List<String>> compute() {
+            // Walk sequentially until the threshold; the stack holds one sibling iterator per level
+            Deque<Iterator<N>> stack = new ArrayDeque<>();
+            stack.push(shape.children(folder));
+            List<String> out = new ArrayList<>();
+            StringBuilder buffer = new StringBuilder(); // Only while the task runs, not while it is queued
+            int count = 0;
+            while (!stack.isEmpty() && count < splitThreshold) {
+                Iterator<N> siblings = stack.peek();
+                if (!siblings.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                N node = siblings.next();
+                count++;
+                emit(node, childDepth + stack.size() - 1, out, buffer);
+                if (shape.isFolder(node)) {
+                    stack.push(shape.children(node));
+                }
+            }
+
+            // Hand every folder still ahead, deepest level first, to its own task
+            List<Object> pieces = new ArrayList<>();
+            while (!stack.isEmpty()) {
+                Iterator<N> siblings = stack.pop();
+                int depth = childDepth + stack.size();
+                while (siblings.hasNext()) {
+                    N node = siblings.next();
+                    count++;
+                    emit(node, depth, out, buffer);
+                    if (shape.isFolder(node)) {
+                        pieces.add(out);
+                        out = new ArrayList<>();
+                        WalkTask<N> task = new WalkTask<>(shape, node, depth + 1, nameFilter, splitThreshold, visited);
+                        task.fork();
+                        pieces.add(task);
+                    }
+                }
+            }
+            pieces.add(out);
+            visited.add(count);
+
+            List<List<String>> chunks = new ArrayList<>();
+            for (Object piece : pieces) {
+                if (piece instanceof WalkTask) {
+                    chunks.addAll(((WalkTask<?>) piece).join());
+                } else if (!((List<?>) piece).isEmpty()) {
+                    @SuppressWarnings("unchecked")
+                    List<String> chunk = (List<String>) piece;
+                    chunks.add(chunk);
+                }
+            }
+            return chunks;
+        }
+
+        private void emit(N node, int depth, List<String> out, StringBuilder buffer) {
+            boolean isFolder = shape.isFolder(node);
+            if (nameFilter == null) {
+                out.add(TreeTraversal.line(buffer, depth, isFolder, shape.name(node)));
+            } else if (!isFolder) {
+                String name = shape.name(node);
+                if (nameFilter.test(name)) {
+                    out.add(name);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.filemanager.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded least-recently-used cache from normalized folder paths to resolved folders.
+ * <p>
+ * Adds never change the path of an existing folder, so only moves invalidate entries: moving a
+ * folder drops the cached paths of it and everything below it. A generation counter bumped on
+ * every invalidation keeps a resolution that raced with a move from caching a stale path.
+ * <p>
+ * The cache is split into segments by path hash, each an LRU map with its own monitor and an
+ * equal share of the capacity, so threads resolving different paths rarely wait for each other.
+ * Eviction is least-recently-used within a segment rather than across the whole cache.
+ */
+final class PathCache<F> {
+    static final int DEFAULT_CAPACITY = 4096;
+    private static final int SEGMENTS = 16;
+
+    private final Map<String, F>[] segments;
+    private final AtomicLong generation = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    PathCache(int capacity) {
+        int segmentCapacity = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new LinkedHashMap<String, F>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, F> eldest) {
+                    return size() > segmentCapacity;
+                }
+            };
+        }
+    }
+
+    F get(String path) {
+        Map<String, F> segment = segmentOf(path);
+        synchronized (segment) {
+            return segment.get(path);
+        }
+    }
+
+    /**
+     * @return a token to pass to {@link #put} once the resolution it guards is complete
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    void put(String path, F folder, long observedGeneration) {
+        Map<String, F> segment = segmentOf(path);
+        synchronized (segment) {
+            // An invalidation bumps the generation before it sweeps, so a stale path is either refused here or swept
+            if (generation.get() == observedGeneration) {
+                segment.put(path, folder);
+            }
+        }
+    }
+
+    /**
+     * Drops the entries for a folder that is about to move and for everything below it.
+     */
+    void invalidate(String folderPath) {
+        generation.incrementAndGet();
+        String descendantPrefix = folderPath + FileSystemPaths.SEPARATOR;
+        for (Map<String, F> segment : segments) {
+            synchronized (segment) {
+                segment.keySet().removeIf(path -> path.equals(folderPath) || path.startsWith(descendantPrefix));
+            }
+        }
+    }
+
+    private Map<String, F> segmentOf(String path) {
+        int hash = path.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+}
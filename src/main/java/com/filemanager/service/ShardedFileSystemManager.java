@@ -0,0 +1,722 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.index.NamePattern;
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.File;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+import com.filemanager.models.Folder;
+
+/**
+ * Thread-safe {@link FileSystemManager} that partitions the tree across independent shards,
+ * each a {@link FileSystemManagerImpl} with its own lock and indexes.
+ * <p>
+ * Every item directly under the root lives, with its whole subtree, in one shard: a new
+ * top-level item is placed by the hash of its name, and an item moved up to the root stays in
+ * the shard it came from. The root itself is virtual. Each shard has an empty root folder of its
+ * own, and the manager keeps one placeholder per top-level item, in root order, which answers
+ * the root's listings and pages. Operations are routed by the first component of a path, or for
+ * a bare name by the shard holding the item that owns it; names resolve with the same
+ * first-added-wins policy as {@link FileSystemManagerImpl}.
+ * <p>
+ * A topology lock separates moves from everything else, as in {@link ConcurrentFileSystemManager}.
+ * Adds and reads hold it shared and then lock only their shard, so work on different shards
+ * does not contend. Moves and batches take it exclusively. A move within one shard is handed to
+ * that shard. A move across shards runs in two phases: it first checks the source, the target
+ * and the name in both shards, then detaches the subtree from one shard's tree and indexes and
+ * attaches it to the other's, at O(subtree) cost. No reader sees the subtree in both shards or
+ * in neither.
+ * <p>
+ * Searches from the root fan out to every shard in parallel and merge the results, by name for
+ * {@link #searchFiles} and in root order for {@link #searchFileLikeMatch}; searches from any
+ * other folder run in its shard alone. Full traversals hold the topology lock shared and read
+ * each folder under its shard's lock. The lazy iterators are weakly consistent, like those of
+ * {@link ConcurrentFileSystemManager}.
+ * <p>
+ * The shards report to one set of watches, so a watch follows its folder across shards. With
+ * folder figures enabled, every shard keeps them up to date and a subtree carries its figures
+ * across shards, so the root's figures are the sum of one O(1) answer per shard.
+ */
+public class ShardedFileSystemManager implements FileSystemManager {
+    private static final int DEFAULT_SHARDS = 8;
+    private static final int ROOT = -1;
+    private static final int NOT_FOUND = -2;
+
+    // Fan-out threads are daemons and retire when idle
+    private static final ExecutorService FAN_OUT = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "file-system-shard");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String rootName;
+    private final Shard[] shards;
+    private final Folder topLevel; // Placeholders for the root's children, guarded by its own monitor
+    private final Map<String, Integer> topLevelShards = new ConcurrentHashMap<>();
+    private final Map<String, Integer> shardsByName = new ConcurrentHashMap<>(); // Shard of the item owning each name
+    private final StampedLock topologyLock = new StampedLock();
+    private long crossShardMoves; // Only changes under the topology lock held exclusively
+    private final WatchRegistry<Folder> watches;
+    private final TreeShape<PlacedItem> treeShape = new ShardedShape(false);
+    private final TreeShape<PlacedItem> lazyTreeShape = new ShardedShape(true);
+
+    public ShardedFileSystemManager(String rootName) {
+        this(rootName, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param shardCount the number of shards to spread the top-level items across
+     */
+    public ShardedFileSystemManager(String rootName, int shardCount) {
+        this(rootName, shardCount, false);
+    }
+
+    /**
+     * @param rootName the name of the root folder
+     * @param shardCount the number of shards to spread the top-level items across
+     * @param folderStatsEnabled true to keep every folder's aggregate figures up to date in every
+     *        shard, so {@link #getFolderStats} answers in O(1) per shard at the cost of O(depth)
+     *        per add and move
+     */
+    public ShardedFileSystemManager(String rootName, int shardCount, boolean folderStatsEnabled) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        this.rootName = rootName;
+        this.topLevel = new Folder(rootName);
+        this.watches = new WatchRegistry<>(this::aliasOf, this::parentOf, FileSystemPaths::pathOf);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            Folder shardRoot = new Folder(rootName);
+            if (folderStatsEnabled) {
+                shardRoot.trackStats(); // Folders added or attached later inherit tracking
+            }
+            shards[i] = new Shard(shardRoot, watches);
+        }
+        shardsByName.put(rootName, ROOT);
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        add(FileSystemOperation.add(parentFolderName, name, isFolder));
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        move(FileSystemOperation.move(sourceName, destinationFolderName));
+    }
+
+    @Override
+    public OperationStatus apply(FileSystemOperation operation) {
+        return operation.getType() == OperationType.ADD ? add(operation) : move(operation);
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        long stamp = topologyLock.writeLock();
+        try {
+            List<OperationStatus> results = new ArrayList<>(operations.size());
+            for (FileSystemOperation operation : operations) {
+                results.add(operation.getType() == OperationType.ADD ? addLocked(operation) : moveLocked(operation));
+            }
+            return results;
+        } finally {
+            topologyLock.unlockWrite(stamp);
+        }
+    }
+
+    private OperationStatus add(FileSystemOperation operation) {
+        long stamp = topologyLock.readLock();
+        try {
+            return addLocked(operation);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    // Adds under the topology lock, held shared or exclusively
+    private OperationStatus addLocked(FileSystemOperation operation) {
+        int shard = shardOf(operation.getFolderName());
+        if (shard == NOT_FOUND) {
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        if (shard != ROOT) {
+            return addInShard(shard, operation);
+        }
+        String name = operation.getName();
+        synchronized (topLevel) {
+            if (topLevel.getItem(name) != null) {
+                return OperationStatus.NAME_TAKEN;
+            }
+            shard = Math.floorMod(name.hashCode(), shards.length);
+            OperationStatus status = addInShard(shard, operation); // The folder name resolves to the shard's root there too
+            if (status == OperationStatus.APPLIED) {
+                topLevel.addItem(operation.isFolder() ? new Folder(name) : new File(name));
+                topLevelShards.put(name, shard);
+            }
+            return status;
+        }
+    }
+
+    private OperationStatus addInShard(int shard, FileSystemOperation operation) {
+        return withShard(shard, true, manager -> {
+            OperationStatus status = manager.apply(operation);
+            if (status == OperationStatus.APPLIED) {
+                shardsByName.putIfAbsent(operation.getName(), shard); // First item with a given name owns it
+            }
+            return status;
+        });
+    }
+
+    private OperationStatus move(FileSystemOperation operation) {
+        long stamp = topologyLock.writeLock();
+        try {
+            return moveLocked(operation);
+        } finally {
+            topologyLock.unlockWrite(stamp);
+        }
+    }
+
+    // Moves under the topology lock held exclusively, so no shard is in use by anyone else
+    private OperationStatus moveLocked(FileSystemOperation operation) {
+        int sourceShard = shardOf(operation.getName());
+        if (sourceShard == NOT_FOUND) {
+            return OperationStatus.SOURCE_NOT_FOUND; // Source does not exist
+        }
+        if (sourceShard == ROOT) {
+            return OperationStatus.ROOT_NOT_MOVABLE; // The root cannot be moved
+        }
+        Shard source = shards[sourceShard];
+        FileSystemItem sourceItem = source.manager.locateItem(operation.getName());
+        if (sourceItem == null) {
+            return OperationStatus.SOURCE_NOT_FOUND;
+        }
+        boolean topLevelSource = sourceItem.getParent() == source.root;
+        int targetShard = shardOf(operation.getFolderName());
+        if (targetShard == NOT_FOUND) {
+            return OperationStatus.TARGET_NOT_FOUND; // Target directory does not exist
+        }
+
+        if (targetShard == ROOT) {
+            if (topLevelSource) {
+                return OperationStatus.ALREADY_IN_TARGET;
+            }
+            synchronized (topLevel) {
+                if (topLevel.getItem(sourceItem.getName()) != null) {
+                    return OperationStatus.NAME_TAKEN; // The name is taken at the root, possibly in another shard
+                }
+                OperationStatus status = source.manager.apply(operation);
+                if (status == OperationStatus.APPLIED) {
+                    topLevel.addItem(sourceItem.isFolder() ? new Folder(sourceItem.getName()) : new File(sourceItem.getName()));
+                    topLevelShards.put(sourceItem.getName(), sourceShard);
+                }
+                return status;
+            }
+        }
+        if (targetShard == sourceShard) {
+            OperationStatus status = source.manager.apply(operation);
+            if (status == OperationStatus.APPLIED && topLevelSource) {
+                removeTopLevel(sourceItem.getName());
+            }
+            return status;
+        }
+        return transfer(sourceItem, sourceShard, targetShard, operation.getFolderName(), topLevelSource);
+    }
+
+    // Moves a subtree to another shard; the caller holds the topology lock exclusively
+    private OperationStatus transfer(FileSystemItem sourceItem, int sourceShard, int targetShard,
+                                     String targetFolderName, boolean topLevelSource) {
+        // Prepare: check the target in its own shard before either shard changes. The target lies
+        // in another top-level subtree, so it can be neither inside the source nor its parent
+        FileSystemItem target = shards[targetShard].manager.locateItem(targetFolderName);
+        if (target == null || !target.isFolder()) {
+            return OperationStatus.TARGET_NOT_FOUND;
+        }
+        Folder targetFolder = (Folder) target;
+        if (targetFolder.getItem(sourceItem.getName()) != null) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in the target
+        }
+
+        // Commit: hand the subtree over, together with the names its items own across all shards
+        Folder sourceFolder = sourceItem.getParent();
+        Set<FileSystemItem> nameOwners = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (FileSystemItem localOwner : shards[sourceShard].manager.detach(sourceItem)) {
+            Integer ownerShard = shardsByName.get(localOwner.getName());
+            if (ownerShard != null && ownerShard == sourceShard) {
+                nameOwners.add(localOwner);
+            }
+        }
+        shards[targetShard].manager.attach(targetFolder, sourceItem, nameOwners::contains);
+        for (FileSystemItem owner : nameOwners) {
+            shardsByName.put(owner.getName(), targetShard);
+        }
+        if (topLevelSource) {
+            removeTopLevel(sourceItem.getName());
+        }
+        crossShardMoves++;
+        watches.moved(sourceFolder, targetFolder, sourceItem.getName(), sourceItem.isFolder());
+        return OperationStatus.APPLIED;
+    }
+
+    private void removeTopLevel(String name) {
+        synchronized (topLevel) {
+            topLevel.removeItem(topLevel.getItem(name));
+            topLevelShards.remove(name);
+        }
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        return routed(folderName, false, () -> {
+            long files = 0;
+            long folders = 0;
+            long bytes = 0;
+            int maxDepth = 0;
+            for (FolderStats stats : fanOut(shard -> withShard(shard, false, manager -> manager.getFolderStats(rootName)))) {
+                files += stats.getFileCount();
+                folders += stats.getFolderCount();
+                bytes += stats.getTotalBytes();
+                maxDepth = Math.max(maxDepth, stats.getMaxDepth());
+            }
+            return new FolderStats(files, folders, bytes, maxDepth);
+        }, manager -> manager.getFolderStats(folderName), null);
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        return routed(folderName, false, () -> watches.subscribe(topLevel, recursive, watcher),
+                manager -> manager.watch(folderName, recursive, watcher), null);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        return routed(folderName, false, () -> {
+            synchronized (topLevel) {
+                List<String> items = new ArrayList<>(topLevel.getItemCount());
+                for (FileSystemItem item : topLevel.getItems()) {
+                    items.add(item.getName());
+                }
+                return items;
+            }
+        }, manager -> manager.listContents(folderName), Collections.emptyList());
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        PageCursor.checkLimit(limit);
+        // The first name-ordered page of a folder builds its sorted view, which needs the shard exclusively
+        return routed(folderName, sortOrder == SortOrder.NAME, () -> {
+            synchronized (topLevel) {
+                return PageCursor.page(topLevel, cursor, limit, sortOrder);
+            }
+        }, manager -> manager.listContents(folderName, cursor, limit, sortOrder), ContentPage.empty());
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        long stamp = topologyLock.readLock();
+        try {
+            return TreeTraversal.drain(TreeTraversal.directoryStructure(treeShape, rootItem()));
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        long stamp = topologyLock.readLock();
+        try {
+            return ParallelTraversal.directoryStructure(treeShape, rootItem(), parallelism);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return TreeTraversal.directoryStructure(lazyTreeShape, rootItem());
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        long stamp = topologyLock.readLock();
+        try {
+            TreeTraversal.writeDirectoryStructure(treeShape, rootItem(), out);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        return routed(folderName, false, () -> {
+            synchronized (topLevel) {
+                FileSystemItem sameCase = topLevel.getItem(fileName);
+                if (sameCase != null && !sameCase.isFolder()) {
+                    return sameCase.getName();
+                }
+                for (FileSystemItem item : topLevel.getItems()) {
+                    if (!item.isFolder() && item.getName().equalsIgnoreCase(fileName)) {
+                        return item.getName(); // Found exact match
+                    }
+                }
+                return null;
+            }
+        }, manager -> manager.searchFileExactMatch(folderName, fileName), null);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return routed(folderName, false, () -> likeMatchesFromRoot(likeMatchFilter(pattern)),
+                manager -> manager.searchFileLikeMatch(folderName, pattern), Collections.emptyList());
+    }
+
+    // Walks the top-level subtrees of each shard in parallel and joins the results in root order
+    private List<String> likeMatchesFromRoot(Predicate<String> nameFilter) {
+        PlacedItem[] topLevelItems = topLevelItems();
+        List<List<List<String>>> matchesByShard = fanOut(shard -> {
+            List<List<String>> matches = new ArrayList<>();
+            TraversalCounter counter = TraversalCounter.current();
+            for (PlacedItem item : topLevelItems) {
+                if (item.shard != shard) {
+                    continue;
+                }
+                counter.visit();
+                if (item.item.isFolder()) {
+                    matches.add(TreeTraversal.drain(TreeTraversal.matchingFiles(treeShape, item, nameFilter)));
+                } else {
+                    matches.add(nameFilter.test(item.item.getName())
+                            ? Collections.singletonList(item.item.getName()) : Collections.emptyList());
+                }
+            }
+            return matches;
+        });
+        int[] nextOfShard = new int[shards.length];
+        List<String> matchingFiles = new ArrayList<>();
+        for (PlacedItem item : topLevelItems) {
+            matchingFiles.addAll(matchesByShard.get(item.shard).get(nextOfShard[item.shard]++));
+        }
+        return matchingFiles;
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        ParallelTraversal.checkParallelism(parallelism);
+        long stamp = topologyLock.readLock();
+        try {
+            PlacedItem directory = placeFolder(folderName);
+            if (directory == null) {
+                return Collections.emptyList(); // Folder not found
+            }
+            return ParallelTraversal.matchingFiles(treeShape, directory, likeMatchFilter(pattern), parallelism);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        PlacedItem directory;
+        long stamp = topologyLock.readLock();
+        try {
+            directory = placeFolder(folderName);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+        if (directory == null) {
+            return Collections.emptyIterator(); // Folder not found
+        }
+        return TreeTraversal.matchingFiles(lazyTreeShape, directory, likeMatchFilter(pattern));
+    }
+
+    // Matches like the shards themselves do, so results agree whichever way a search is routed
+    private static Predicate<String> likeMatchFilter(String pattern) {
+        String foldedPattern = SortedNameIndex.fold(pattern);
+        return name -> SortedNameIndex.fold(name).contains(foldedPattern);
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        TreeTraversal.checkLimit(limit);
+        NamePattern.compile(query, searchType); // Rejects a malformed query even if the folder is missing
+        return routed(folderName, false, () -> {
+            // Each shard returns its first matches by name, so the overall first ones are among them
+            List<String> matchingFiles = new ArrayList<>();
+            for (List<String> shardMatches : fanOut(shard -> withShard(shard, false,
+                    manager -> manager.searchFiles(rootName, query, searchType, limit)))) {
+                matchingFiles.addAll(shardMatches);
+            }
+            return TreeTraversal.firstInNameOrder(matchingFiles.iterator(), limit);
+        }, manager -> manager.searchFiles(folderName, query, searchType, limit), Collections.emptyList());
+    }
+
+    /**
+     * Answers a request about one folder under the topology lock held shared: at the root through
+     * the given supplier, anywhere else in the shard holding the folder, under that shard's lock.
+     *
+     * @param exclusive true to lock the shard for writing
+     * @param missing the answer when the folder does not exist
+     */
+    private <T> T routed(String folderName, boolean exclusive, Supplier<T> atRoot,
+                         Function<FileSystemManagerImpl, T> inShard, T missing) {
+        long stamp = topologyLock.readLock();
+        try {
+            int shard = shardOf(folderName);
+            if (shard == ROOT) {
+                return atRoot.get();
+            }
+            return shard == NOT_FOUND ? missing : withShard(shard, exclusive, inShard);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T withShard(int shard, boolean exclusive, Function<FileSystemManagerImpl, T> action) {
+        ReentrantReadWriteLock shardLock = shards[shard].lock;
+        Lock lock = exclusive ? shardLock.writeLock() : shardLock.readLock();
+        lock.lock();
+        try {
+            return action.apply(shards[shard].manager);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a task for every shard, the first on the calling thread and the others on the fan-out
+     * pool, and counts the nodes the pooled tasks visit on the caller's {@link TraversalCounter}.
+     * Every task is waited for, even after one fails, since they all rely on the caller's hold
+     * on the topology lock.
+     *
+     * @return the tasks' results, by shard
+     */
+    private <T> List<T> fanOut(IntFunction<T> shardTask) {
+        LongAdder visited = new LongAdder();
+        List<Future<T>> pending = new ArrayList<>(shards.length - 1);
+        for (int i = 1; i < shards.length; i++) {
+            int shard = i;
+            pending.add(FAN_OUT.submit(() -> {
+                TraversalCounter counter = TraversalCounter.current();
+                long before = counter.visited();
+                try {
+                    return shardTask.apply(shard);
+                } finally {
+                    visited.add(counter.visited() - before);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        Throwable failure = null;
+        try {
+            results.add(shardTask.apply(0));
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        for (Future<T> future : pending) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // Restored once every task is done
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        TraversalCounter.current().visit(visited.sum());
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return results;
+    }
+
+    /**
+     * @return the shard holding a name or path, ROOT for the root, or NOT_FOUND; the caller holds
+     *         the topology lock
+     */
+    private int shardOf(String name) {
+        Integer shard;
+        if (FileSystemPaths.isPath(name)) {
+            String path = FileSystemPaths.normalize(name);
+            if (path.equals(FileSystemPaths.ROOT)) {
+                return ROOT;
+            }
+            int separator = path.indexOf(FileSystemPaths.SEPARATOR, 1);
+            shard = topLevelShards.get(path.substring(1, separator < 0 ? path.length() : separator));
+        } else {
+            shard = shardsByName.get(name);
+        }
+        return shard == null ? NOT_FOUND : shard;
+    }
+
+    // Finds the shard of an item through its top-level ancestor; the caller holds the topology lock
+    private int shardHolding(FileSystemItem item) {
+        FileSystemItem topLevelItem = item;
+        while (topLevelItem.getParent().getParent() != null) {
+            topLevelItem = topLevelItem.getParent();
+        }
+        return topLevelShards.get(topLevelItem.getName());
+    }
+
+    // Locates a folder for a walk; the caller holds the topology lock
+    private PlacedItem placeFolder(String folderName) {
+        int shard = shardOf(folderName);
+        if (shard == ROOT) {
+            return rootItem();
+        }
+        if (shard == NOT_FOUND) {
+            return null;
+        }
+        FileSystemItem item = withShard(shard, false, manager -> manager.locateItem(folderName));
+        return item != null && item.isFolder() ? new PlacedItem(item, shard, crossShardMoves) : null;
+    }
+
+    private PlacedItem rootItem() {
+        return new PlacedItem(topLevel, ROOT, 0L);
+    }
+
+    // Every shard root stands for the root, so changes directly in any of them reach the root's direct watches
+    private Folder aliasOf(Folder folder) {
+        return folder.getParent() == null ? topLevel : folder;
+    }
+
+    // Shard roots hang below the placeholder root, so a recursive watch on the root sees changes in every shard
+    private Folder parentOf(Folder folder) {
+        return folder.getParent() != null || folder == topLevel ? folder.getParent() : topLevel;
+    }
+
+    // Copies a folder's children under the lock of the shard holding it; the caller holds the topology lock
+    private PlacedItem[] childrenOf(PlacedItem folder) {
+        if (folder.shard == ROOT) {
+            return topLevelItems();
+        }
+        // A subtree only changes shard in a cross-shard move, after which its shard is looked up again
+        int shard = folder.moves == crossShardMoves ? folder.shard : shardHolding(folder.item);
+        Folder directory = (Folder) folder.item;
+        Lock lock = shards[shard].lock.readLock();
+        lock.lock();
+        try {
+            PlacedItem[] children = new PlacedItem[directory.getItemCount()];
+            int i = 0;
+            for (FileSystemItem child : directory.getItems()) {
+                children[i++] = new PlacedItem(child, shard, crossShardMoves);
+            }
+            return children;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The top-level items in root order; the caller holds the topology lock
+    private PlacedItem[] topLevelItems() {
+        synchronized (topLevel) {
+            PlacedItem[] items = new PlacedItem[topLevel.getItemCount()];
+            int i = 0;
+            for (FileSystemItem placeholder : topLevel.getItems()) {
+                // A shard's root only changes under this monitor or the exclusive topology lock
+                int shard = topLevelShards.get(placeholder.getName());
+                items[i++] = new PlacedItem(shards[shard].root.getItem(placeholder.getName()), shard, crossShardMoves);
+            }
+            return items;
+        }
+    }
+
+    private static final class Shard {
+        private final Folder root;
+        private final FileSystemManagerImpl manager;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Shard(Folder root, WatchRegistry<Folder> watches) {
+            this.root = root;
+            this.manager = new FileSystemManagerImpl(root, watches);
+        }
+    }
+
+    // An item with the shard that held it when the given number of cross-shard moves had happened
+    private static final class PlacedItem {
+        private final FileSystemItem item;
+        private final int shard;
+        private final long moves;
+
+        PlacedItem(FileSystemItem item, int shard, long moves) {
+            this.item = item;
+            this.shard = shard;
+            this.moves = moves;
+        }
+    }
+
+    // Walks across shards; the lazy variant takes the topology lock for each folder instead of relying on the caller
+    private final class ShardedShape implements TreeShape<PlacedItem> {
+        private final boolean lazy;
+
+        ShardedShape(boolean lazy) {
+            this.lazy = lazy;
+        }
+
+        @Override
+        public Iterator<PlacedItem> children(PlacedItem folder) {
+            if (!lazy) {
+                return Arrays.asList(childrenOf(folder)).iterator();
+            }
+            long stamp = topologyLock.readLock();
+            try {
+                return Arrays.asList(childrenOf(folder)).iterator();
+            } finally {
+                topologyLock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public String name(PlacedItem node) {
+            return node.item.getName();
+        }
+
+        @Override
+        public boolean isFolder(PlacedItem node) {
+            return node.item.isFolder();
+        }
+    }
+}
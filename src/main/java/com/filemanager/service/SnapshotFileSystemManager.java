@@ -0,0 +1,291 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.filemanager.collections.PersistentHashMap;
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.OperationType;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
+/**
+ * Thread-safe {@link FileSystemManager} built on a persistent (structurally shared) tree.
+ * <p>
+ * Every add or move builds a new immutable version of the tree that shares all untouched nodes
+ * with the previous one, and publishes it through an atomic reference. Readers grab the current
+ * version in O(1) with {@link #snapshot()} and traverse it without any locks, so long scans such
+ * as {@link #listDirectoryStructure()} never block writers and never observe a half-applied
+ * change. Writers are serialized among themselves.
+ * <p>
+ * Each write replaces O(1) nodes, at a cost of O(log32 n) each in the id map. A move
+ * additionally walks the target's ancestors to reject cycles. A batch applies all of its
+ * operations to a private working version and publishes only the final one, so readers see
+ * either none of the batch or all of it. Names resolve with the same
+ * first-added-wins policy as {@link FileSystemManagerImpl}.
+ * <p>
+ * Watches are keyed by folder id. A write reports its changes only after it publishes, so a
+ * watcher never hears of a version that readers cannot see yet, and a batch reports nothing if
+ * it fails. Event paths are those of the published version, which for a batch is its final one.
+ */
+public class SnapshotFileSystemManager implements FileSystemManager {
+    private final AtomicReference<FileSystemSnapshot> current = new AtomicReference<>();
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private int nextId;
+    private FileSystemSnapshot staged; // The working version of the write in progress, guarded by writeLock
+    private final Map<String, Integer> stagedIds = new HashMap<>(); // Names claimed by the write in progress, guarded by writeLock
+    private final List<Runnable> stagedEvents = new ArrayList<>(); // Reported once staged is published, guarded by writeLock
+    private final WatchRegistry<Integer> watches = new WatchRegistry<>(this::parentIdOf, this::pathOf);
+
+    public SnapshotFileSystemManager(String rootName) {
+        int rootId = nextId++;
+        idsByName.put(rootName, rootId);
+        PersistentHashMap<Integer, SnapshotNode> nodes = PersistentHashMap.<Integer, SnapshotNode>empty()
+                .put(rootId, SnapshotNode.create(rootId, rootName, true, SnapshotNode.NO_PARENT));
+        current.set(new FileSystemSnapshot(nodes, rootId, idsByName));
+    }
+
+    /**
+     * Returns the current version of the tree. The snapshot is immutable; later writes are not
+     * visible through it.
+     *
+     * @return the latest published snapshot
+     */
+    public FileSystemSnapshot snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public void addFileOrFolder(String parentFolderName, String name, boolean isFolder) {
+        writeLock.lock();
+        try {
+            staged = current.get();
+            add(parentFolderName, name, isFolder, 0L);
+            publish();
+        } finally {
+            endWrite();
+            writeLock.unlock();
+        }
+    }
+
+    private OperationStatus add(String parentFolderName, String name, boolean isFolder, long size) {
+        FileSystemSnapshot base = staged;
+        SnapshotNode parentDir = base.searchFolder(parentFolderName);
+        if (parentDir == null) {
+            return OperationStatus.PARENT_NOT_FOUND; // No parent directory located
+        }
+        if (parentDir.childId(name) != null) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in this folder
+        }
+        int id = nextId++;
+        PersistentHashMap<Integer, SnapshotNode> nodes = base.nodesById()
+                .put(id, SnapshotNode.create(id, name, isFolder, parentDir.id, size))
+                .put(parentDir.id, parentDir.withChild(name, id));
+        if (idsByName.putIfAbsent(name, id) == null) { // First item with a given name owns it
+            stagedIds.put(name, id);
+        }
+        stage(nodes);
+        if (!watches.isEmpty()) {
+            int parentId = parentDir.id;
+            stagedEvents.add(() -> watches.added(parentId, name, isFolder));
+        }
+        return OperationStatus.APPLIED;
+    }
+
+    @Override
+    public void moveFileOrFolder(String sourceName, String destinationFolderName) {
+        writeLock.lock();
+        try {
+            staged = current.get();
+            move(sourceName, destinationFolderName);
+            publish();
+        } finally {
+            endWrite();
+            writeLock.unlock();
+        }
+    }
+
+    private OperationStatus move(String sourceName, String destinationFolderName) {
+        FileSystemSnapshot base = staged;
+        SnapshotNode sourceItem = base.locateItem(sourceName);
+        if (sourceItem == null) {
+            return OperationStatus.SOURCE_NOT_FOUND; // Source does not exist
+        }
+        if (sourceItem.parentId == SnapshotNode.NO_PARENT) {
+            return OperationStatus.ROOT_NOT_MOVABLE; // The root cannot be moved
+        }
+        SnapshotNode targetFolder = base.searchFolder(destinationFolderName);
+        if (targetFolder == null) {
+            return OperationStatus.TARGET_NOT_FOUND; // Target directory does not exist
+        }
+        for (SnapshotNode ancestor = targetFolder; ; ancestor = base.node(ancestor.parentId)) {
+            if (ancestor.id == sourceItem.id) {
+                return OperationStatus.TARGET_INSIDE_SOURCE; // A folder cannot be moved into itself or one of its descendants
+            }
+            if (ancestor.parentId == SnapshotNode.NO_PARENT) {
+                break;
+            }
+        }
+        if (targetFolder.id == sourceItem.parentId) {
+            return OperationStatus.ALREADY_IN_TARGET;
+        }
+        if (targetFolder.childId(sourceItem.name) != null) {
+            return OperationStatus.NAME_TAKEN; // The name is taken in the target
+        }
+
+        SnapshotNode currentParentDir = base.node(sourceItem.parentId).withoutChild(sourceItem.name);
+        if (currentParentDir.needsCompaction()) {
+            currentParentDir = currentParentDir.compacted(childId -> base.node(childId).name);
+        }
+        PersistentHashMap<Integer, SnapshotNode> nodes = base.nodesById()
+                .put(currentParentDir.id, currentParentDir)
+                .put(targetFolder.id, targetFolder.withChild(sourceItem.name, sourceItem.id))
+                .put(sourceItem.id, sourceItem.withParent(targetFolder.id));
+        stage(nodes);
+        if (!watches.isEmpty()) {
+            int sourceParentId = sourceItem.parentId;
+            int targetId = targetFolder.id;
+            stagedEvents.add(() -> watches.moved(sourceParentId, targetId, sourceItem.name, sourceItem.folder));
+        }
+        return OperationStatus.APPLIED;
+    }
+
+    @Override
+    public List<OperationStatus> applyBatch(List<FileSystemOperation> operations) {
+        writeLock.lock();
+        try {
+            staged = current.get();
+            List<OperationStatus> results = new ArrayList<>(operations.size());
+            for (FileSystemOperation operation : operations) {
+                results.add(operation.getType() == OperationType.ADD
+                        ? add(operation.getFolderName(), operation.getName(), operation.isFolder(), operation.getSize())
+                        : move(operation.getName(), operation.getFolderName()));
+            }
+            publish();
+            return results;
+        } finally {
+            endWrite();
+            writeLock.unlock();
+        }
+    }
+
+    // Replaces the working version; readers see it only once the write publishes it
+    private void stage(PersistentHashMap<Integer, SnapshotNode> nodes) {
+        staged = new FileSystemSnapshot(nodes, staged.rootId(), idsByName);
+    }
+
+    // Makes the working version visible to readers, then tells watchers what changed in it
+    private void publish() {
+        current.set(staged);
+        stagedIds.clear();
+        for (Runnable event : stagedEvents) {
+            event.run();
+        }
+    }
+
+    // Drops whatever the write staged but did not publish, so a write that failed part way leaves no name claimed
+    private void endWrite() {
+        for (Map.Entry<String, Integer> claim : stagedIds.entrySet()) {
+            idsByName.remove(claim.getKey(), claim.getValue());
+        }
+        stagedIds.clear();
+        stagedEvents.clear();
+        staged = null;
+    }
+
+    // Folder links and paths for watches, resolved in the published version
+    private Integer parentIdOf(Integer folderId) {
+        int parentId = current.get().node(folderId).parentId;
+        return parentId == SnapshotNode.NO_PARENT ? null : parentId;
+    }
+
+    private String pathOf(Integer folderId) {
+        FileSystemSnapshot published = current.get();
+        SnapshotNode folder = published.node(folderId);
+        if (folder.parentId == SnapshotNode.NO_PARENT) {
+            return FileSystemPaths.ROOT;
+        }
+        StringBuilder path = new StringBuilder();
+        for (; folder.parentId != SnapshotNode.NO_PARENT; folder = published.node(folder.parentId)) {
+            path.insert(0, folder.name).insert(0, FileSystemPaths.SEPARATOR);
+        }
+        return path.toString();
+    }
+
+    @Override
+    public WatchSubscription watch(String folderName, boolean recursive, FileSystemWatcher watcher) {
+        SnapshotNode directory = snapshot().searchFolder(folderName);
+        return directory == null ? null : watches.subscribe(directory.id, recursive, watcher);
+    }
+
+    @Override
+    public FolderStats getFolderStats(String folderName) {
+        return snapshot().getFolderStats(folderName);
+    }
+
+    @Override
+    public List<String> listContents(String folderName) {
+        return snapshot().listContents(folderName);
+    }
+
+    @Override
+    public ContentPage listContents(String folderName, String cursor, int limit, SortOrder sortOrder) {
+        return snapshot().listContents(folderName, cursor, limit, sortOrder);
+    }
+
+    @Override
+    public List<String> listDirectoryStructure() {
+        return snapshot().listDirectoryStructure();
+    }
+
+    @Override
+    public List<String> listDirectoryStructureInParallel(int parallelism) {
+        return snapshot().listDirectoryStructureInParallel(parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateDirectoryStructure() {
+        return snapshot().iterateDirectoryStructure();
+    }
+
+    @Override
+    public void writeDirectoryStructure(Appendable out) throws IOException {
+        snapshot().writeDirectoryStructure(out);
+    }
+
+    @Override
+    public String searchFileExactMatch(String folderName, String fileName) {
+        return snapshot().searchFileExactMatch(folderName, fileName);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatch(String folderName, String pattern) {
+        return snapshot().searchFileLikeMatch(folderName, pattern);
+    }
+
+    @Override
+    public List<String> searchFileLikeMatchInParallel(String folderName, String pattern, int parallelism) {
+        return snapshot().searchFileLikeMatchInParallel(folderName, pattern, parallelism);
+    }
+
+    @Override
+    public Iterator<String> iterateFileLikeMatch(String folderName, String pattern) {
+        return snapshot().iterateFileLikeMatch(folderName, pattern);
+    }
+
+    @Override
+    public List<String> searchFiles(String folderName, String query, SearchType searchType, int limit) {
+        return snapshot().searchFiles(folderName, query, searchType, limit);
+    }
+}
@@ -0,0 +1,124 @@
+package com.filemanager.service;
+
+import java.util.function.IntFunction;
+
+import com.filemanager.collections.PersistentHashMap;
+import com.filemanager.collections.PersistentVector;
+
+/**
+ * Immutable file or folder in a {@link FileSystemSnapshot}.
+ * <p>
+ * Nodes refer to their parent and children by id instead of by reference. Changing a folder
+ * therefore only replaces that folder's node in the snapshot's id map, not every ancestor up to
+ * the root. A folder keeps its child ids in insertion order; a child that moves out leaves a
+ * null hole, and the holes are squeezed out once they outnumber the live children. Next to
+ * every child slot sits the child's order key, which only ever grows within a folder, so
+ * paginated listings can resume after a key with a binary search.
+ */
+final class SnapshotNode {
+    static final int NO_PARENT = -1;
+
+    final int id;
+    final String name;
+    final boolean folder;
+    final int parentId;
+    final PersistentVector<Integer> childIds;
+    final PersistentVector<Long> childKeys;
+    final PersistentHashMap<String, Integer> childSlotsByName;
+    final long nextChildKey;
+    final long size; // File size in bytes; always 0 for folders
+
+    private SnapshotNode(int id, String name, boolean folder, int parentId, PersistentVector<Integer> childIds,
+                         PersistentVector<Long> childKeys, PersistentHashMap<String, Integer> childSlotsByName,
+                         long nextChildKey, long size) {
+        this.id = id;
+        this.name = name;
+        this.folder = folder;
+        this.parentId = parentId;
+        this.childIds = childIds;
+        this.childKeys = childKeys;
+        this.childSlotsByName = childSlotsByName;
+        this.nextChildKey = nextChildKey;
+        this.size = size;
+    }
+
+    static SnapshotNode create(int id, String name, boolean folder, int parentId) {
+        return create(id, name, folder, parentId, 0L);
+    }
+
+    static SnapshotNode create(int id, String name, boolean folder, int parentId, long size) {
+        return folder
+                ? new SnapshotNode(id, name, true, parentId, PersistentVector.empty(), PersistentVector.empty(),
+                        PersistentHashMap.empty(), 0L, 0L)
+                : new SnapshotNode(id, name, false, parentId, null, null, null, 0L, size);
+    }
+
+    int childCount() {
+        return childSlotsByName.size();
+    }
+
+    Integer childId(String childName) {
+        Integer slot = childSlotsByName.get(childName);
+        return slot == null ? null : childIds.get(slot);
+    }
+
+    /**
+     * @return the first slot whose child was added after the given order key
+     */
+    int firstSlotAfter(long orderKey) {
+        int low = 0;
+        int high = childKeys.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (childKeys.get(middle) <= orderKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    SnapshotNode withParent(int newParentId) {
+        return new SnapshotNode(id, name, folder, newParentId, childIds, childKeys, childSlotsByName, nextChildKey, size);
+    }
+
+    SnapshotNode withChild(String childName, int childId) {
+        return withChild(childName, childId, nextChildKey);
+    }
+
+    private SnapshotNode withChild(String childName, int childId, long childKey) {
+        return new SnapshotNode(id, name, folder, parentId, childIds.append(childId), childKeys.append(childKey),
+                childSlotsByName.put(childName, childIds.size()), Math.max(nextChildKey, childKey + 1), size);
+    }
+
+    SnapshotNode withoutChild(String childName) {
+        Integer slot = childSlotsByName.get(childName);
+        if (slot == null) {
+            return this;
+        }
+        return new SnapshotNode(id, name, folder, parentId, childIds.set(slot, null), childKeys,
+                childSlotsByName.remove(childName), nextChildKey, size);
+    }
+
+    boolean needsCompaction() {
+        return childIds.size() > 2 * childCount() + 32;
+    }
+
+    /**
+     * Rebuilds the child vector without holes, keeping the children and their order keys.
+     *
+     * @param nameOfChild resolves a child id to the child's name
+     */
+    SnapshotNode compacted(IntFunction<String> nameOfChild) {
+        SnapshotNode packed = new SnapshotNode(id, name, folder, parentId, PersistentVector.empty(),
+                PersistentVector.empty(), PersistentHashMap.empty(), nextChildKey, size);
+        for (int slot = 0; slot < childIds.size(); slot++) {
+            Integer childId = childIds.get(slot);
+            if (childId != null) {
+                packed = packed.withChild(nameOfChild.apply(childId), childId, childKeys.get(slot));
+            }
+        }
+        return packed;
+    }
+}
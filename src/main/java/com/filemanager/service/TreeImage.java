@@ -0,0 +1,133 @@
+package com.filemanager.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.filemanager.models.File;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.Folder;
+
+/**
+ * Compact binary image of a {@link Folder} tree, used for snapshots.
+ * <p>
+ * After a magic number, the items follow in pre-order. Each item is one flag byte (folder, owns
+ * its name, has a size), its name as length-prefixed UTF-8, then for a folder its child count
+ * and for a file with a non-zero size the size in bytes. Children are
+ * written in insertion order, so listings read back in the same order. Whether an item owns its
+ * name is stored explicitly: the first-added-wins owner of a name is not necessarily the first
+ * item with that name in pre-order. Both directions keep an explicit stack, so deep trees do
+ * not overflow the call stack.
+ */
+final class TreeImage {
+    private static final int MAGIC = 0x46534931; // "FSI1"
+    private static final int FOLDER_FLAG = 1;
+    private static final int OWNS_NAME_FLAG = 2;
+    private static final int SIZED_FLAG = 4;
+
+    private TreeImage() {
+    }
+
+    static void write(Folder rootDirectory, Predicate<FileSystemItem> ownsName, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        writeItem(rootDirectory, ownsName, out);
+        Deque<Iterator<FileSystemItem>> stack = new ArrayDeque<>();
+        stack.push(rootDirectory.getItems().iterator());
+        while (!stack.isEmpty()) {
+            Iterator<FileSystemItem> siblings = stack.peek();
+            if (!siblings.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            FileSystemItem item = siblings.next();
+            writeItem(item, ownsName, out);
+            if (item.isFolder()) {
+                stack.push(((Folder) item).getItems().iterator());
+            }
+        }
+    }
+
+    /**
+     * Reads the root folder of an image; its children follow with {@link #readChildren}.
+     */
+    static Folder readRoot(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a file system image");
+        }
+        int flags = in.readUnsignedByte();
+        if ((flags & FOLDER_FLAG) == 0) {
+            throw new IOException("Image root is not a folder");
+        }
+        return new Folder(readName(in));
+    }
+
+    /**
+     * Rebuilds the tree below the root, reporting each item, and whether it owns its name, once
+     * it has been attached to its parent.
+     */
+    static void readChildren(DataInput in, Folder rootDirectory, BiConsumer<FileSystemItem, Boolean> onItem)
+            throws IOException {
+        Deque<Folder> folders = new ArrayDeque<>();
+        Deque<int[]> remainingChildren = new ArrayDeque<>();
+        folders.push(rootDirectory);
+        remainingChildren.push(new int[]{in.readInt()});
+        while (!folders.isEmpty()) {
+            if (remainingChildren.peek()[0]-- == 0) {
+                folders.pop();
+                remainingChildren.pop();
+                continue;
+            }
+            int flags = in.readUnsignedByte();
+            String name = readName(in);
+            FileSystemItem item = (flags & FOLDER_FLAG) != 0 ? new Folder(name)
+                    : new File(name, (flags & SIZED_FLAG) != 0 ? readSize(in) : 0L);
+            if (!folders.peek().addItem(item)) {
+                throw new IOException("Duplicate name in image: " + name);
+            }
+            onItem.accept(item, (flags & OWNS_NAME_FLAG) != 0);
+            if (item.isFolder()) {
+                folders.push((Folder) item);
+                remainingChildren.push(new int[]{in.readInt()});
+            }
+        }
+    }
+
+    private static void writeItem(FileSystemItem item, Predicate<FileSystemItem> ownsName, DataOutput out)
+            throws IOException {
+        long size = item.isFolder() ? 0L : ((File) item).getSize();
+        out.writeByte((item.isFolder() ? FOLDER_FLAG : 0) | (ownsName.test(item) ? OWNS_NAME_FLAG : 0)
+                | (size != 0 ? SIZED_FLAG : 0));
+        byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+        if (item.isFolder()) {
+            out.writeInt(((Folder) item).getItemCount());
+        } else if (size != 0) {
+            out.writeLong(size);
+        }
+    }
+
+    private static long readSize(DataInput in) throws IOException {
+        long size = in.readLong();
+        if (size < 0) {
+            throw new IOException("Corrupt file size: " + size);
+        }
+        return size;
+    }
+
+    private static String readName(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt name length: " + length);
+        }
+        byte[] name = new byte[length];
+        in.readFully(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
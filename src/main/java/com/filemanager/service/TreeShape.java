@@ -0,0 +1,18 @@
+package com.filemanager.service;
+
+import java.util.Iterator;
+
+/**
+ * Read access to a tree of nodes of type N, letting {@link TreeTraversal} walk the different
+ * node representations used by the managers.
+ */
+interface TreeShape<N> {
+    /**
+     * @return the children of a folder node, in listing order
+     */
+    Iterator<N> children(N folder);
+
+    String name(N node);
+
+    boolean isFolder(N node);
+}
@@ -0,0 +1,278 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import com.filemanager.index.SortedNameIndex;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.FolderStats;
+
+/**
+ * Lazy depth-first walks over a {@link TreeShape}.
+ * <p>
+ * The walks keep an explicit stack of child iterators, one per level, instead of recursing, so
+ * memory stays proportional to the depth of the tree and arbitrarily deep trees cannot overflow
+ * the call stack. Nothing is materialized beyond the entry being produced. Every node a walk
+ * steps onto is counted on the {@link TraversalCounter} of the thread that started it.
+ */
+final class TreeTraversal {
+    private static final String INDENT = "  ";
+
+    private TreeTraversal() {
+    }
+
+    /**
+     * Produces the lines of {@link FileSystemManager#listDirectoryStructure()} one at a time.
+     */
+    static <N> Iterator<String> directoryStructure(TreeShape<N> shape, N root) {
+        PreOrderCursor<N> cursor = new PreOrderCursor<>(shape, root, true);
+        StringBuilder buffer = new StringBuilder();
+        return new LookaheadIterator<String>() {
+            @Override
+            String computeNext() {
+                if (!cursor.advance()) {
+                    return null;
+                }
+                return line(buffer, cursor.depth, shape.isFolder(cursor.node), shape.name(cursor.node));
+            }
+        };
+    }
+
+    /**
+     * Writes the directory structure, one line per entry, without building a String per line.
+     */
+    static <N> void writeDirectoryStructure(TreeShape<N> shape, N root, Appendable out) throws IOException {
+        PreOrderCursor<N> cursor = new PreOrderCursor<>(shape, root, true);
+        while (cursor.advance()) {
+            for (int i = 0; i < cursor.depth; i++) {
+                out.append(INDENT);
+            }
+            out.append(shape.isFolder(cursor.node) ? "+ " : "- ").append(shape.name(cursor.node)).append('\n');
+        }
+    }
+
+    /**
+     * Produces the names of the files below a folder whose names pass the filter, in directory order.
+     */
+    static <N> Iterator<String> matchingFiles(TreeShape<N> shape, N folder, Predicate<String> nameFilter) {
+        PreOrderCursor<N> cursor = new PreOrderCursor<>(shape, folder, false);
+        return new LookaheadIterator<String>() {
+            @Override
+            String computeNext() {
+                while (cursor.advance()) {
+                    if (!shape.isFolder(cursor.node)) {
+                        String name = shape.name(cursor.node);
+                        if (nameFilter.test(name)) {
+                            return name;
+                        }
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Collects the names of the files below a folder whose names pass the filter, in directory
+     * order, unless the subtree holds more than maxItems items.
+     *
+     * @return the matching names, or null once the walk has visited maxItems items without finishing
+     */
+    static <N> List<String> matchingFilesWithin(TreeShape<N> shape, N folder, Predicate<String> nameFilter, long maxItems) {
+        PreOrderCursor<N> cursor = new PreOrderCursor<>(shape, folder, false);
+        List<String> names = new ArrayList<>();
+        for (long items = 0; cursor.advance(); items++) {
+            if (items == maxItems) {
+                return null;
+            }
+            if (!shape.isFolder(cursor.node)) {
+                String name = shape.name(cursor.node);
+                if (nameFilter.test(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Counts everything below a folder by walking its subtree.
+     */
+    static <N> FolderStats folderStats(TreeShape<N> shape, N folder, ToLongFunction<N> fileSize) {
+        PreOrderCursor<N> cursor = new PreOrderCursor<>(shape, folder, false);
+        long files = 0;
+        long folders = 0;
+        long bytes = 0;
+        int maxDepth = 0;
+        while (cursor.advance()) {
+            maxDepth = Math.max(maxDepth, cursor.depth);
+            if (shape.isFolder(cursor.node)) {
+                folders++;
+            } else {
+                files++;
+                bytes += fileSize.applyAsLong(cursor.node);
+            }
+        }
+        return new FolderStats(files, folders, bytes, maxDepth);
+    }
+
+    static List<String> drain(Iterator<String> iterator) {
+        List<String> items = new ArrayList<>();
+        iterator.forEachRemaining(items::add);
+        return items;
+    }
+
+    /**
+     * Takes at most limit items, so a lazy walk stops as soon as it has produced them.
+     */
+    static List<String> drain(Iterator<String> iterator, int limit) {
+        List<String> items = new ArrayList<>();
+        while (items.size() < limit && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return items;
+    }
+
+    /**
+     * Takes the first limit names in search result order from names produced in any order,
+     * holding at most limit of them at a time. Search results are ordered by case-folded name,
+     * and names that fold alike by the names themselves, so the same query returns the same
+     * names whichever way a manager finds them.
+     */
+    static List<String> firstInNameOrder(Iterator<String> names, int limit) {
+        PriorityQueue<FoldedName> largestFirst = new PriorityQueue<>(Comparator.reverseOrder());
+        while (names.hasNext()) {
+            FoldedName name = new FoldedName(names.next());
+            if (largestFirst.size() < limit) {
+                largestFirst.offer(name);
+            } else if (limit > 0 && name.compareTo(largestFirst.peek()) < 0) {
+                largestFirst.poll();
+                largestFirst.offer(name);
+            }
+        }
+        String[] sorted = new String[largestFirst.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = largestFirst.poll().name;
+        }
+        List<String> result = new ArrayList<>(sorted.length);
+        Collections.addAll(result, sorted);
+        return result;
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+    }
+
+    /**
+     * Builds one structure line in a buffer reused from line to line, so a walk holds a single
+     * buffer as long as its deepest line rather than one indent string per depth.
+     */
+    static String line(StringBuilder buffer, int depth, boolean isFolder, String name) {
+        buffer.setLength(0);
+        for (int i = 0; i < depth; i++) {
+            buffer.append(INDENT);
+        }
+        return buffer.append(isFolder ? "+ " : "- ").append(name).toString();
+    }
+
+    // A name with its folded form, in search result order
+    private static final class FoldedName implements Comparable<FoldedName> {
+        final String name;
+        final String folded;
+
+        FoldedName(String name) {
+            this.name = name;
+            this.folded = SortedNameIndex.fold(name);
+        }
+
+        @Override
+        public int compareTo(FoldedName other) {
+            int order = folded.compareTo(other.folded);
+            return order != 0 ? order : name.compareTo(other.name);
+        }
+    }
+
+    // Pre-order walk that exposes the current node and its depth below the start node
+    private static final class PreOrderCursor<N> {
+        private final TreeShape<N> shape;
+        private final TraversalCounter counter = TraversalCounter.current();
+        private final Deque<Iterator<N>> stack = new ArrayDeque<>();
+        private N pendingStart;
+        N node;
+        int depth;
+
+        PreOrderCursor(TreeShape<N> shape, N start, boolean includeStart) {
+            this.shape = shape;
+            if (includeStart) {
+                pendingStart = start;
+            } else {
+                stack.push(shape.children(start));
+            }
+        }
+
+        boolean advance() {
+            if (pendingStart != null) {
+                node = pendingStart;
+                depth = 0;
+                pendingStart = null;
+                counter.visit();
+                if (shape.isFolder(node)) {
+                    stack.push(shape.children(node));
+                }
+                return true;
+            }
+            while (!stack.isEmpty()) {
+                Iterator<N> siblings = stack.peek();
+                if (siblings.hasNext()) {
+                    node = siblings.next();
+                    depth = stack.size();
+                    counter.visit();
+                    if (shape.isFolder(node)) {
+                        stack.push(shape.children(node));
+                    }
+                    return true;
+                }
+                stack.pop();
+            }
+            return false;
+        }
+    }
+
+    // Iterator that computes each element on demand; null marks the end
+    private abstract static class LookaheadIterator<T> implements Iterator<T> {
+        private T next;
+        private boolean computed;
+
+        abstract T computeNext();
+
+        @Override
+        public boolean hasNext() {
+            if (!computed) {
+                next = computeNext();
+                computed = true;
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            computed = false;
+            return next;
+        }
+    }
+}
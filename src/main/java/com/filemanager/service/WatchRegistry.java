@@ -0,0 +1,209 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.filemanager.enums.EventType;
+import com.filemanager.models.FileSystemEvent;
+
+/**
+ * The folder watches of one manager, and the asynchronous delivery of their events.
+ * <p>
+ * Writers report each change together with the folder it happened in. The registry walks from
+ * that folder up to the root, handing the event to the direct watches of the folder itself and
+ * to the recursive watches of every ancestor. A change costs O(depth) once anything is watched,
+ * and a single emptiness check otherwise. Watches are keyed by folder handle, so a watch
+ * follows its folder when the folder moves. A manager whose folders have aliases, such as the
+ * per-shard roots standing for one root, maps each changed folder to the handle its watches are
+ * registered on.
+ * <p>
+ * Each subscription has its own bounded queue. Events for the same name in the same folder
+ * coalesce: a later one replaces an earlier one that has not been delivered yet, so the
+ * subscriber sees the latest state of each item. A queue that would exceed its capacity is
+ * emptied and replaced by a single OVERFLOW event, so a slow subscriber costs writers neither
+ * blocking nor unbounded memory. A queue that gains events is drained on a shared pool of
+ * daemon threads, one batch at a time per subscription.
+ *
+ * @param <F> the manager's folder handle, compared with equals
+ */
+final class WatchRegistry<F> {
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // Delivery threads are daemons and retire when idle; a subscriber that blocks only holds up its own thread
+    private static final Executor DELIVERY = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "file-system-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final UnaryOperator<F> aliasOf;
+    private final UnaryOperator<F> parentOf;
+    private final Function<F, String> pathOf;
+    private final int queueCapacity;
+    private final ConcurrentMap<F, List<Subscription>> subscriptionsByFolder = new ConcurrentHashMap<>();
+
+    /**
+     * @param parentOf the folder holding a folder, or null for the root
+     * @param pathOf the absolute path of a folder
+     */
+    WatchRegistry(UnaryOperator<F> parentOf, Function<F, String> pathOf) {
+        this(parentOf, pathOf, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    WatchRegistry(UnaryOperator<F> parentOf, Function<F, String> pathOf, int queueCapacity) {
+        this(UnaryOperator.identity(), parentOf, pathOf, queueCapacity);
+    }
+
+    /**
+     * @param aliasOf the handle that a changed folder is watched through, often the folder itself
+     * @param parentOf the folder holding a folder, or null for the root
+     * @param pathOf the absolute path of a folder
+     */
+    WatchRegistry(UnaryOperator<F> aliasOf, UnaryOperator<F> parentOf, Function<F, String> pathOf) {
+        this(aliasOf, parentOf, pathOf, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private WatchRegistry(UnaryOperator<F> aliasOf, UnaryOperator<F> parentOf, Function<F, String> pathOf, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.aliasOf = aliasOf;
+        this.parentOf = parentOf;
+        this.pathOf = pathOf;
+        this.queueCapacity = queueCapacity;
+    }
+
+    WatchSubscription subscribe(F folder, boolean recursive, FileSystemWatcher watcher) {
+        Objects.requireNonNull(watcher, "watcher");
+        Subscription subscription = new Subscription(folder, recursive, watcher);
+        subscriptionsByFolder.compute(folder, (key, subscriptions) -> {
+            List<Subscription> updated = subscriptions == null ? new CopyOnWriteArrayList<>() : subscriptions;
+            updated.add(subscription);
+            return updated;
+        });
+        return subscription;
+    }
+
+    /**
+     * @return true if nothing is watched, in which case reporting a change is free
+     */
+    boolean isEmpty() {
+        return subscriptionsByFolder.isEmpty();
+    }
+
+    void added(F folder, String name, boolean isFolder) {
+        publish(folder, EventType.ADDED, name, isFolder);
+    }
+
+    void moved(F sourceFolder, F targetFolder, String name, boolean isFolder) {
+        publish(sourceFolder, EventType.MOVED_OUT, name, isFolder);
+        publish(targetFolder, EventType.MOVED_IN, name, isFolder);
+    }
+
+    private void publish(F folder, EventType type, String name, boolean isFolder) {
+        if (subscriptionsByFolder.isEmpty()) {
+            return;
+        }
+        FileSystemEvent event = null; // Built on the first match, since the path costs O(depth)
+        boolean direct = true;
+        for (F ancestor = aliasOf.apply(folder); ancestor != null; ancestor = parentOf.apply(ancestor), direct = false) {
+            List<Subscription> subscriptions = subscriptionsByFolder.get(ancestor);
+            if (subscriptions == null) {
+                continue;
+            }
+            for (Subscription subscription : subscriptions) {
+                if (direct || subscription.recursive) {
+                    if (event == null) {
+                        event = new FileSystemEvent(type, pathOf.apply(folder), name, isFolder);
+                    }
+                    subscription.offer(event);
+                }
+            }
+        }
+    }
+
+    private final class Subscription implements WatchSubscription {
+        private final F folder;
+        private final boolean recursive;
+        private final FileSystemWatcher watcher;
+        private final LinkedHashMap<String, FileSystemEvent> pending = new LinkedHashMap<>(); // By folder path and name
+        private boolean overflowed;
+        private boolean delivering;
+        private boolean closed;
+
+        Subscription(F folder, boolean recursive, FileSystemWatcher watcher) {
+            this.folder = folder;
+            this.recursive = recursive;
+            this.watcher = watcher;
+        }
+
+        synchronized void offer(FileSystemEvent event) {
+            if (closed || overflowed) {
+                return; // After an overflow the subscriber re-lists, which covers this event too
+            }
+            String key = event.getFolderPath() + FileSystemPaths.SEPARATOR + event.getName();
+            pending.remove(key); // Re-inserted at the end, where the latest change belongs
+            pending.put(key, event);
+            if (pending.size() > queueCapacity) {
+                pending.clear();
+                overflowed = true;
+            }
+            if (!delivering) {
+                delivering = true;
+                DELIVERY.execute(this::deliver);
+            }
+        }
+
+        // Hands out batches until the queue is found empty
+        private void deliver() {
+            while (true) {
+                List<FileSystemEvent> batch;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !overflowed)) {
+                        delivering = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.size() + 1);
+                    if (overflowed) {
+                        batch.add(FileSystemEvent.overflow());
+                    }
+                    batch.addAll(pending.values());
+                    pending.clear();
+                    overflowed = false;
+                }
+                try {
+                    watcher.onEvents(Collections.unmodifiableList(batch));
+                } catch (RuntimeException e) {
+                    // A failing watcher keeps its subscription; report the failure as an uncaught one
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            subscriptionsByFolder.computeIfPresent(folder, (key, subscriptions) -> {
+                subscriptions.remove(this);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+    }
+}
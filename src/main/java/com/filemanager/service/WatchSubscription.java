@@ -0,0 +1,13 @@
+package com.filemanager.service;
+
+/**
+ * Handle on a folder watch; closing it stops delivery.
+ */
+public interface WatchSubscription extends AutoCloseable {
+    /**
+     * Stops the watch. Events still queued are discarded, and a batch already being delivered
+     * may complete after this returns.
+     */
+    @Override
+    void close();
+}
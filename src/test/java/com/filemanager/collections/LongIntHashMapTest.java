@@ -0,0 +1,36 @@
+package com.filemanager.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class LongIntHashMapTest {
+    // Random puts and removes agree with a HashMap, including across resizes and backward shifts
+    @Test
+    public void test_matches_hash_map() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            long key = ((long) random.nextInt(500) << 32) | random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int folder = 0; folder < 500; folder++) {
+            for (int name = 0; name < 200; name++) {
+                long key = ((long) folder << 32) | name;
+                assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key));
+            }
+        }
+    }
+}
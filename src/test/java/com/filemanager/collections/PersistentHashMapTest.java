@@ -0,0 +1,68 @@
+package com.filemanager.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class PersistentHashMapTest {
+    // Key with a fixed hash code, to force full-hash collisions
+    private static final class CollidingKey {
+        private final String value;
+
+        CollidingKey(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CollidingKey && ((CollidingKey) other).value.equals(value);
+        }
+    }
+
+    // Updates leave earlier versions untouched
+    @Test
+    public void test_updates_keep_earlier_versions() {
+        PersistentHashMap<Integer, String> empty = PersistentHashMap.empty();
+        PersistentHashMap<Integer, String> map = empty;
+        for (int i = 0; i < 100000; i++) {
+            map = map.put(i, "v" + i);
+        }
+        PersistentHashMap<Integer, String> updated = map.put(7, "changed").remove(8).remove(100001);
+
+        assertEquals(100000, map.size());
+        assertEquals("v7", map.get(7));
+        assertEquals("v8", map.get(8));
+        assertEquals(99999, updated.size());
+        assertEquals("changed", updated.get(7));
+        assertNull(updated.get(8));
+        assertEquals("v99999", updated.get(99999));
+        assertNull(empty.get(7));
+    }
+
+    // Keys with equal hash codes are stored side by side
+    @Test
+    public void test_colliding_keys() {
+        PersistentHashMap<Object, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.put(new CollidingKey("k" + i), i);
+        }
+        map = map.put(42, -1).put(new CollidingKey("k3"), 33).remove(new CollidingKey("k4"));
+
+        assertEquals(10, map.size());
+        assertEquals(33, map.get(new CollidingKey("k3")));
+        assertNull(map.get(new CollidingKey("k4")));
+        assertEquals(9, map.get(new CollidingKey("k9")));
+        assertEquals(-1, map.get(42));
+        for (int i = 0; i < 10; i++) {
+            map = map.remove(new CollidingKey("k" + i));
+        }
+        assertEquals(1, map.size());
+        assertSame(map, map.remove(new CollidingKey("k0")));
+    }
+}
@@ -0,0 +1,138 @@
+package com.filemanager.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.ManagerMethod;
+import com.filemanager.enums.SearchType;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.service.ConcurrentFileSystemManager;
+import com.filemanager.service.FileSystemManagerImpl;
+
+public class InstrumentedFileSystemManagerTest {
+    // Adds and moves that silently do nothing are counted as failures
+    @Test
+    public void test_silent_early_returns_count_as_failures() {
+        InstrumentedFileSystemManager fileSystemManager = new InstrumentedFileSystemManager(new ConcurrentFileSystemManager("root"));
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("missing", "a.txt", false);
+        fileSystemManager.addFileOrFolder("docs", "a.txt", false);
+        fileSystemManager.moveFileOrFolder("a.txt", "missing");
+        fileSystemManager.moveFileOrFolder("docs", "docs");
+        fileSystemManager.moveFileOrFolder("a.txt", "root");
+        fileSystemManager.applyBatch(Arrays.asList(FileSystemOperation.add("root", "b.txt", false),
+                FileSystemOperation.add("root", "b.txt", false)));
+
+        FileSystemMetrics metrics = fileSystemManager.getMetrics();
+        assertEquals(3, metrics.get(ManagerMethod.ADD_FILE_OR_FOLDER).getCalls());
+        assertEquals(1, metrics.get(ManagerMethod.ADD_FILE_OR_FOLDER).getFailures());
+        assertEquals(3, metrics.get(ManagerMethod.MOVE_FILE_OR_FOLDER).getCalls());
+        assertEquals(2, metrics.get(ManagerMethod.MOVE_FILE_OR_FOLDER).getFailures());
+        assertEquals(1, metrics.get(ManagerMethod.APPLY_BATCH).getFailures());
+        assertEquals(Arrays.asList("docs", "a.txt", "b.txt"), fileSystemManager.listContents("root"));
+    }
+
+    // Traversals record the nodes they visited and the number of names they returned
+    @Test
+    public void test_records_nodes_visited_and_result_sizes() {
+        InstrumentedFileSystemManager fileSystemManager = new InstrumentedFileSystemManager(new FileSystemManagerImpl("root"));
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("docs", "a.txt", false);
+        fileSystemManager.addFileOrFolder("docs", "b.txt", false);
+        fileSystemManager.addFileOrFolder("root", "c.log", false);
+
+        fileSystemManager.listDirectoryStructure();
+        fileSystemManager.searchFileLikeMatch("docs", ".txt");
+        fileSystemManager.searchFiles("root", "a", SearchType.PREFIX);
+        Iterator<String> lines = fileSystemManager.iterateDirectoryStructure();
+        lines.next();
+        lines.forEachRemaining(line -> { });
+        lines.hasNext();
+
+        FileSystemMetrics metrics = fileSystemManager.getMetrics();
+        assertEquals(5, metrics.get(ManagerMethod.LIST_DIRECTORY_STRUCTURE).getNodesVisited().getMax());
+        assertEquals(5, metrics.get(ManagerMethod.LIST_DIRECTORY_STRUCTURE).getResultSize().getMax());
+        assertEquals(2, metrics.get(ManagerMethod.SEARCH_FILE_LIKE_MATCH).getNodesVisited().getMax());
+        assertEquals(2, metrics.get(ManagerMethod.SEARCH_FILE_LIKE_MATCH).getResultSize().getMax());
+        assertEquals(1, metrics.get(ManagerMethod.SEARCH_FILES).getResultSize().getMax());
+        assertEquals(1, metrics.get(ManagerMethod.ITERATE_DIRECTORY_STRUCTURE).getResultSize().getCount());
+        assertEquals(5, metrics.get(ManagerMethod.ITERATE_DIRECTORY_STRUCTURE).getNodesVisited().getMax());
+    }
+
+    // A lazy iterator drained on another thread reports its own nodes, not other work on either thread
+    @Test
+    public void test_lazy_iterator_counts_only_its_own_nodes() throws Exception {
+        InstrumentedFileSystemManager fileSystemManager = new InstrumentedFileSystemManager(new FileSystemManagerImpl("root"));
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("docs", "a.txt", false);
+        fileSystemManager.addFileOrFolder("root", "c.log", false);
+
+        Iterator<String> lines = fileSystemManager.iterateDirectoryStructure();
+        fileSystemManager.listDirectoryStructure(); // Unrelated work on the creating thread
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            fileSystemManager.searchFileLikeMatch("root", ".txt"); // Unrelated work on the draining thread
+            lines.forEachRemaining(line -> { });
+            return lines.hasNext();
+        }).get();
+        executor.shutdown();
+
+        FileSystemMetrics metrics = fileSystemManager.getMetrics();
+        assertEquals(4, metrics.get(ManagerMethod.ITERATE_DIRECTORY_STRUCTURE).getNodesVisited().getMax());
+        assertEquals(4, metrics.get(ManagerMethod.ITERATE_DIRECTORY_STRUCTURE).getResultSize().getMax());
+        assertEquals(4, metrics.get(ManagerMethod.LIST_DIRECTORY_STRUCTURE).getNodesVisited().getMax());
+    }
+
+    // The metrics can be read over JMX once registered
+    @Test
+    public void test_metrics_are_exposed_through_jmx() throws Exception {
+        InstrumentedFileSystemManager fileSystemManager = new InstrumentedFileSystemManager(new FileSystemManagerImpl("root"));
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.listContents("root");
+        fileSystemManager.listContents("root");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = fileSystemManager.getMetrics().registerMBean("jmx-test");
+        try {
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+            assertEquals(2, operations.length);
+            assertEquals("listContents", operations[1].get("name"));
+            assertEquals(2L, operations[1].get("calls"));
+            assertTrue((Long) ((CompositeData) operations[1].get("latencyNanos")).get("p99") > 0);
+
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0, fileSystemManager.getMetrics().getOperations().size());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    // Percentiles stay within the histogram's relative error
+    @Test
+    public void test_histogram_percentiles() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(50_000.5, snapshot.getMean(), 1e-9);
+        assertTrue(snapshot.getP50() >= 50_000 && snapshot.getP50() <= 50_000 * 1.04, "p50=" + snapshot.getP50());
+        assertTrue(snapshot.getP99() >= 99_000 && snapshot.getP99() <= 99_000 * 1.04, "p99=" + snapshot.getP99());
+        assertEquals(63, Histogram.highestValueIn(Histogram.bucketOf(63)));
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueIn(Histogram.bucketOf(Long.MAX_VALUE)));
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketOf(Long.MAX_VALUE));
+    }
+}
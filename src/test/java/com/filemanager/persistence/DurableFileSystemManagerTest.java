@@ -0,0 +1,151 @@
+package com.filemanager.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
+public class DurableFileSystemManagerTest {
+    @TempDir
+    Path directory;
+
+    // Adds and moves are replayed from the log after a restart
+    @Test
+    public void test_tree_survives_reopen() throws IOException {
+        List<String> structure;
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root")) {
+            fileSystemManager.addFileOrFolder("root", "folder1", true);
+            fileSystemManager.addFileOrFolder("root", "folder2", true);
+            fileSystemManager.addFileOrFolder("folder1", "file1.txt", false);
+            fileSystemManager.addFileOrFolder("folder2", "shared", true);
+            fileSystemManager.addFileOrFolder("folder1", "shared", true);
+            fileSystemManager.addFileOrFolder("shared", "file2.txt", false);
+            fileSystemManager.moveFileOrFolder("file1.txt", "folder2");
+            fileSystemManager.moveFileOrFolder("folder1", "folder1");
+            structure = fileSystemManager.listDirectoryStructure();
+        }
+
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "ignored")) {
+            assertEquals(structure, fileSystemManager.listDirectoryStructure());
+            assertEquals(Collections.singletonList("file2.txt"), fileSystemManager.listContents("shared"));
+        }
+    }
+
+    // Checkpoints write snapshots, drop the log they cover and keep name ownership
+    @Test
+    public void test_checkpoint_then_replay_tail() throws IOException {
+        List<String> structure;
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root", false, 10)) {
+            fileSystemManager.addFileOrFolder("root", "a", true);
+            fileSystemManager.addFileOrFolder("root", "x", true);
+            fileSystemManager.addFileOrFolder("a", "x", true); // Comes first in pre-order, but "x" names /x
+            fileSystemManager.addFileOrFolder("root", "b", true);
+            fileSystemManager.moveFileOrFolder("b", "a");
+            for (int i = 0; i < 25; i++) {
+                fileSystemManager.addFileOrFolder("x", "file" + i, false);
+            }
+            structure = fileSystemManager.listDirectoryStructure();
+        }
+        assertEquals(1, listDirectory("snapshot-").size());
+
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root", false, 10)) {
+            assertEquals(structure, fileSystemManager.listDirectoryStructure());
+            assertEquals(25, fileSystemManager.listContents("/x").size());
+            assertEquals(25, fileSystemManager.listContents("x").size());
+            assertEquals(Collections.emptyList(), fileSystemManager.listContents("/a/x"));
+        }
+    }
+
+    // File sizes survive both snapshots and log replay, and tracked figures match counted ones
+    @Test
+    public void test_file_sizes_survive_reopen() throws IOException {
+        FolderStats stats;
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root", false, true, 4)) {
+            fileSystemManager.addFileOrFolder("root", "media", true);
+            for (int i = 1; i <= 6; i++) {
+                fileSystemManager.apply(FileSystemOperation.addFile(i % 2 == 0 ? "media" : "root", "clip" + i, i * 1000L));
+            }
+            fileSystemManager.addFileOrFolder("media", "empty.txt", false);
+            stats = fileSystemManager.getFolderStats("root");
+        }
+        assertEquals(new FolderStats(7, 1, 21000, 2), stats);
+
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root", false, 4)) {
+            assertEquals(stats, fileSystemManager.getFolderStats("root"));
+            assertEquals(new FolderStats(4, 0, 12000, 1), fileSystemManager.getFolderStats("media"));
+        }
+    }
+
+    // A record torn by a crash is discarded and logging resumes after the last intact one
+    @Test
+    public void test_torn_log_tail_is_discarded() throws IOException {
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root")) {
+            fileSystemManager.addFileOrFolder("root", "folder1", true);
+            fileSystemManager.addFileOrFolder("folder1", "file1.txt", false);
+        }
+        Path segment = listDirectory("wal-").get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root")) {
+            assertEquals(Collections.singletonList("file1.txt"), fileSystemManager.listContents("folder1"));
+            fileSystemManager.addFileOrFolder("folder1", "file2.txt", false);
+        }
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root")) {
+            assertEquals(Arrays.asList("file1.txt", "file2.txt"), fileSystemManager.listContents("folder1"));
+        }
+    }
+
+    // Concurrent writers share fsyncs and every acknowledged write is recovered
+    @Test
+    public void test_concurrent_writers_are_all_durable() throws Exception {
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root", false, 300)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> writers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    writers.add(executor.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            fileSystemManager.addFileOrFolder("root", "file" + thread + "_" + i, false);
+                        }
+                    }));
+                }
+                for (Future<?> writer : writers) {
+                    writer.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(Collections.singletonList(OperationStatus.NAME_TAKEN),
+                    fileSystemManager.applyBatch(Collections.singletonList(FileSystemOperation.add("root", "file0_0", false))));
+        }
+
+        try (DurableFileSystemManager fileSystemManager = DurableFileSystemManager.open(directory, "root")) {
+            assertEquals(800, fileSystemManager.listContents("root").size());
+        }
+    }
+
+    private List<Path> listDirectory(String prefix) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(entry -> entry.getFileName().toString().startsWith(prefix)).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+
+public class CompactFileSystemManagerTest {
+    // Pages follow the same cursors as the object tree, across moves out of the folder
+    @Test
+    public void test_paginated_listing_matches() {
+        FileSystemManagerImpl expected = new FileSystemManagerImpl("root");
+        CompactFileSystemManager compact = new CompactFileSystemManager("root");
+        List<FileSystemOperation> operations = new ArrayList<>();
+        operations.add(FileSystemOperation.add("root", "big", true));
+        operations.add(FileSystemOperation.add("root", "other", true));
+        for (int i = 0; i < 100; i++) {
+            operations.add(FileSystemOperation.add("/big", "file" + (i * 37 % 100), false));
+        }
+        for (int i = 0; i < 100; i += 3) {
+            operations.add(FileSystemOperation.move("file" + i, "other"));
+        }
+        assertEquals(expected.applyBatch(operations), compact.applyBatch(operations));
+
+        for (SortOrder sortOrder : SortOrder.values()) {
+            String expectedCursor = null;
+            String compactCursor = null;
+            do {
+                ContentPage expectedPage = expected.listContents("big", expectedCursor, 9, sortOrder);
+                ContentPage compactPage = compact.listContents("big", compactCursor, 9, sortOrder);
+                assertEquals(expectedPage.getItems(), compactPage.getItems());
+                expectedCursor = expectedPage.getNextCursor();
+                compactCursor = compactPage.getNextCursor();
+                assertEquals(expectedPage.hasNext(), compactPage.hasNext());
+            } while (expectedCursor != null);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.models.FileSystemOperation;
+
+public class ConcurrentFileSystemManagerTest {
+    // Concurrent adds, moves and traversals leave every added file in exactly one place
+    @Test
+    public void test_concurrent_adds_moves_and_reads() throws Exception {
+        ConcurrentFileSystemManager fileSystemManager = new ConcurrentFileSystemManager("root", 8);
+        int writers = 4;
+        int filesPerWriter = 2000;
+        for (int w = 0; w < writers; w++) {
+            fileSystemManager.addFileOrFolder("root", "folder" + w, true);
+            fileSystemManager.addFileOrFolder("root", "archive" + w, true);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < filesPerWriter; i++) {
+                    fileSystemManager.addFileOrFolder("folder" + writer, "file-" + writer + "-" + i, false);
+                    if (i % 10 == 0) {
+                        fileSystemManager.moveFileOrFolder("file-" + writer + "-" + i, "archive" + writer);
+                    }
+                    if (i % 100 == 0) {
+                        fileSystemManager.moveFileOrFolder("folder" + writer, "archive" + ((writer + 1) % writers));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 50; i++) {
+                    List<String> files = fileSystemManager.searchFileLikeMatch("root", "file-");
+                    assertEquals(files.size(), files.stream().distinct().count());
+                    fileSystemManager.listDirectoryStructure();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(writers * filesPerWriter, fileSystemManager.searchFileLikeMatch("root", "file-").size());
+        for (int w = 0; w < writers; w++) {
+            List<String> archived = fileSystemManager.listContents("archive" + w);
+            assertEquals(filesPerWriter / 10, archived.stream().filter(name -> name.startsWith("file-")).count());
+            assertFalse(fileSystemManager.searchFileLikeMatch("folder" + w, "file-" + w + "-1").isEmpty());
+        }
+    }
+
+    // A traversal sees the tree as it was at one instant, even while adds land in folders it has already passed
+    @Test
+    public void test_traversals_see_a_state_that_existed() throws Exception {
+        ConcurrentFileSystemManager fileSystemManager = new ConcurrentFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "early", true); // Walked first
+        fileSystemManager.addFileOrFolder("root", "middle", true);
+        fileSystemManager.addFileOrFolder("root", "late", true);
+        for (int i = 0; i < 20000; i++) {
+            fileSystemManager.addFileOrFolder("middle", "padding" + i, false); // Keeps a walk busy between the two
+        }
+        int pairs = 3000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> writer = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < pairs; i++) {
+                fileSystemManager.addFileOrFolder("early", "x" + i, false); // Each x lands before its y
+                fileSystemManager.addFileOrFolder("late", "y" + i, false);
+            }
+            return null;
+        });
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            while (!writer.isDone()) {
+                List<String> lines = fileSystemManager.listDirectoryStructure();
+                long xs = lines.stream().filter(line -> line.startsWith("    - x")).count();
+                long ys = lines.stream().filter(line -> line.startsWith("    - y")).count();
+                assertTrue(ys == xs || ys == xs - 1, "x: " + xs + ", y: " + ys);
+                List<String> files = fileSystemManager.searchFiles("root", "", SearchType.PREFIX);
+                long xFiles = files.stream().filter(name -> name.startsWith("x")).count();
+                long yFiles = files.stream().filter(name -> name.startsWith("y")).count();
+                assertTrue(yFiles == xFiles || yFiles == xFiles - 1, "x: " + xFiles + ", y: " + yFiles);
+            }
+            return null;
+        });
+        start.countDown();
+        writer.get(60, TimeUnit.SECONDS);
+        reader.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    // Paths address folders that share a name, and follow moves
+    @Test
+    public void test_path_based_addressing() {
+        ConcurrentFileSystemManager fileSystemManager = new ConcurrentFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("/", "projects", true);
+        fileSystemManager.addFileOrFolder("/projects", "2025", true);
+        fileSystemManager.addFileOrFolder("/projects", "2026", true);
+        fileSystemManager.addFileOrFolder("/projects/2025", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026/q3", "report.pdf", false);
+
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/projects/2026/q3"));
+        assertTrue(fileSystemManager.listContents("q3").isEmpty());
+        fileSystemManager.addFileOrFolder("/", "archive", true);
+        fileSystemManager.moveFileOrFolder("/projects/2026", "/archive");
+        assertTrue(fileSystemManager.listContents("/projects/2026/q3").isEmpty());
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/archive/2026/q3"));
+    }
+
+    // Readers never observe part of a batch
+    @Test
+    public void test_apply_batch_is_atomic() throws Exception {
+        ConcurrentFileSystemManager fileSystemManager = new ConcurrentFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "inbox", true);
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; round < 50; round++) {
+                    List<FileSystemOperation> operations = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        operations.add(FileSystemOperation.add("inbox", "file" + round + "_" + i, false));
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        operations.add(FileSystemOperation.move("/inbox/file" + round + "_" + i, "archive"));
+                    }
+                    assertFalse(fileSystemManager.applyBatch(operations).contains(OperationStatus.NAME_TAKEN));
+                }
+            });
+            Future<?> reader = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    assertTrue(fileSystemManager.listContents("inbox").isEmpty());
+                    assertEquals(0, fileSystemManager.listContents("archive").size() % 100);
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5000, fileSystemManager.listContents("archive").size());
+    }
+}
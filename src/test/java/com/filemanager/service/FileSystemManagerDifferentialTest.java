@@ -0,0 +1,171 @@
+package com.filemanager.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.metrics.InstrumentedFileSystemManager;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.persistence.DurableFileSystemManager;
+
+/**
+ * Runs the same operations against every writable {@link FileSystemManager} and checks that each
+ * one answers like the single-threaded {@link FileSystemManagerImpl}. The read-only
+ * {@link MappedFileSystemManager} is compared against the tree that wrote it in its own test.
+ */
+public class FileSystemManagerDifferentialTest {
+    @TempDir
+    Path directory;
+
+    // Builds a manager over an empty root; the directory is there for managers that persist
+    interface ManagerFactory {
+        FileSystemManager create(Path directory, String rootName) throws IOException;
+    }
+
+    static Stream<Arguments> managers() {
+        return Stream.of(
+                Arguments.of("FileSystemManagerImpl with folder stats",
+                        (ManagerFactory) (directory, rootName) -> new FileSystemManagerImpl(rootName, false, true)),
+                Arguments.of("ConcurrentFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> new ConcurrentFileSystemManager(rootName, 4)),
+                Arguments.of("ConcurrentFileSystemManager with folder stats",
+                        (ManagerFactory) (directory, rootName) -> new ConcurrentFileSystemManager(rootName, 4, true)),
+                Arguments.of("CompactFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> new CompactFileSystemManager(rootName)),
+                Arguments.of("SnapshotFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> new SnapshotFileSystemManager(rootName)),
+                Arguments.of("ShardedFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> new ShardedFileSystemManager(rootName, 4)),
+                Arguments.of("ShardedFileSystemManager with folder stats",
+                        (ManagerFactory) (directory, rootName) -> new ShardedFileSystemManager(rootName, 4, true)),
+                Arguments.of("DurableFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> DurableFileSystemManager.open(directory, rootName)),
+                Arguments.of("InstrumentedFileSystemManager",
+                        (ManagerFactory) (directory, rootName) -> new InstrumentedFileSystemManager(new FileSystemManagerImpl(rootName))));
+    }
+
+    // Basic adds and moves, including rejected ones, read back like the single-threaded implementation
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("managers")
+    public void test_basic_operations_match(String implementation, ManagerFactory factory) throws IOException {
+        FileSystemManagerImpl expected = new FileSystemManagerImpl("root");
+        FileSystemManager fileSystemManager = factory.create(directory, "root");
+        try {
+            List<FileSystemOperation> operations = Arrays.asList(
+                    FileSystemOperation.add("root", "folder1", true),
+                    FileSystemOperation.add("root", "folder2", true),
+                    FileSystemOperation.add("folder1", "file1.txt", false),
+                    FileSystemOperation.add("folder1", "file1.txt", false),
+                    FileSystemOperation.add("folder1", "subfolder", true),
+                    FileSystemOperation.add("subfolder", "File2.TXT", false),
+                    FileSystemOperation.move("subfolder", "folder2"),
+                    FileSystemOperation.move("folder1", "folder1"),
+                    FileSystemOperation.move("folder2", "subfolder"),
+                    FileSystemOperation.move("root", "folder1"),
+                    FileSystemOperation.add("missing", "lost.txt", false));
+            for (FileSystemOperation operation : operations) {
+                assertEquals(expected.apply(operation), fileSystemManager.apply(operation), operation.toString());
+            }
+
+            assertEquals(Arrays.asList("+ root", "  + folder1", "    - file1.txt", "  + folder2", "    + subfolder",
+                    "      - File2.TXT"), fileSystemManager.listDirectoryStructure());
+            assertEquals(expected.searchFileExactMatch("folder1", "FILE1.TXT"), fileSystemManager.searchFileExactMatch("folder1", "FILE1.TXT"));
+            assertEquals(expected.searchFileLikeMatch("root", ".txt"), fileSystemManager.searchFileLikeMatch("root", ".txt"));
+            assertEquals(expected.searchFiles("root", "FILE", SearchType.PREFIX), fileSystemManager.searchFiles("root", "FILE", SearchType.PREFIX));
+            assertEquals(expected.searchFiles("folder2", "file", SearchType.PREFIX), fileSystemManager.searchFiles("folder2", "file", SearchType.PREFIX));
+            assertEquals(expected.listContents("missing"), fileSystemManager.listContents("missing"));
+        } finally {
+            close(fileSystemManager);
+        }
+    }
+
+    // A random mix of adds and moves, by name and by path, leaves every read answering the same way
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("managers")
+    public void test_random_operations_match(String implementation, ManagerFactory factory) throws IOException {
+        FileSystemManagerImpl expected = new FileSystemManagerImpl("root");
+        FileSystemManager fileSystemManager = factory.create(directory, "root");
+        try {
+            Random random = new Random(11);
+            List<String> folders = new ArrayList<>(Arrays.asList("root", "/"));
+            List<String> names = new ArrayList<>(Arrays.asList("root"));
+            for (int i = 0; i < 3000; i++) {
+                int choice = random.nextInt(10);
+                FileSystemOperation operation;
+                if (choice < 7) {
+                    boolean isFolder = choice < 2;
+                    String parent = random.nextInt(4) == 0 ? "root" : folders.get(random.nextInt(folders.size()));
+                    String name = (isFolder ? "dir" : "File") + random.nextInt(400) + (isFolder ? "" : ".txt");
+                    operation = isFolder ? FileSystemOperation.add(parent, name, true)
+                            : FileSystemOperation.addFile(parent, name, random.nextInt(1000));
+                    (isFolder ? folders : names).add(name);
+                } else {
+                    String source = random.nextBoolean() ? names.get(random.nextInt(names.size())) : folders.get(random.nextInt(folders.size()));
+                    String target = random.nextInt(5) == 0 ? "/" : folders.get(random.nextInt(folders.size()));
+                    operation = FileSystemOperation.move(source, target);
+                }
+                assertEquals(expected.apply(operation), fileSystemManager.apply(operation), operation.toString());
+            }
+
+            assertEquals(expected.listDirectoryStructure(), fileSystemManager.listDirectoryStructure());
+            assertEquals(expected.listDirectoryStructure(), TreeTraversal.drain(fileSystemManager.iterateDirectoryStructure()));
+            assertEquals(expected.listDirectoryStructure(), fileSystemManager.listDirectoryStructureInParallel(4));
+            List<String> checkedFolders = new ArrayList<>(folders.subList(0, 60));
+            for (String name : expected.listContents("root")) {
+                checkedFolders.add("/" + name);
+            }
+            for (String folder : checkedFolders) {
+                assertEquals(expected.listContents(folder), fileSystemManager.listContents(folder));
+                assertEquals(expected.searchFileLikeMatch(folder, "LE1"), fileSystemManager.searchFileLikeMatch(folder, "LE1"));
+                assertEquals(expected.searchFileLikeMatch(folder, "LE1"), fileSystemManager.searchFileLikeMatchInParallel(folder, "LE1", 3));
+                assertEquals(expected.searchFileLikeMatch(folder, "e2", 4), fileSystemManager.searchFileLikeMatch(folder, "e2", 4));
+                assertEquals(expected.searchFiles(folder, "file2", SearchType.PREFIX), fileSystemManager.searchFiles(folder, "file2", SearchType.PREFIX));
+                assertEquals(expected.searchFiles(folder, "FILE?2*.txt", SearchType.GLOB, 5),
+                        fileSystemManager.searchFiles(folder, "FILE?2*.txt", SearchType.GLOB, 5));
+                assertEquals(expected.searchFiles(folder, "file(1|3)\\d\\.txt", SearchType.REGEX),
+                        fileSystemManager.searchFiles(folder, "file(1|3)\\d\\.txt", SearchType.REGEX));
+                assertEquals(expected.searchFileExactMatch(folder, "FILE12.TXT"), fileSystemManager.searchFileExactMatch(folder, "FILE12.TXT"));
+                assertEquals(expected.getFolderStats(folder), fileSystemManager.getFolderStats(folder));
+            }
+            for (String folder : Arrays.asList("root", "/", folders.get(2))) {
+                for (SortOrder sortOrder : SortOrder.values()) {
+                    assertEquals(listAllPages(expected, folder, sortOrder), listAllPages(fileSystemManager, folder, sortOrder));
+                }
+            }
+        } finally {
+            close(fileSystemManager);
+        }
+    }
+
+    // Cursors are opaque, so only the names of the pages are compared
+    private static List<String> listAllPages(FileSystemManager fileSystemManager, String folder, SortOrder sortOrder) {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            ContentPage page = fileSystemManager.listContents(folder, cursor, 7, sortOrder);
+            names.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return names;
+    }
+
+    private static void close(FileSystemManager fileSystemManager) throws IOException {
+        if (fileSystemManager instanceof Closeable) {
+            ((Closeable) fileSystemManager).close();
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.filemanager.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.metrics.TraversalCounter;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
 public class FileSystemManagerTest {
     @Test
     public void test_adding_file_to_existing_folder() {
@@ -221,4 +234,495 @@ public class FileSystemManagerTest {
         assertTrue(likeMatchResults.contains("File2.TXT"));
         assertFalse(likeMatchResults.contains("FOLDER2"));
     }
+
+    // Duplicate names in different folders resolve to the item added first
+    @Test
+    public void test_duplicate_names_in_different_folders_resolve_to_first_added() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("root", "folder2", true);
+        fileSystemManager.addFileOrFolder("folder2", "shared", true);
+        fileSystemManager.addFileOrFolder("folder1", "shared", true);
+        fileSystemManager.addFileOrFolder("shared", "file1.txt", false);
+
+        assertTrue(fileSystemManager.listContents("folder2").contains("shared"));
+        assertTrue(fileSystemManager.listContents("folder1").contains("shared"));
+        assertEquals("file1.txt", fileSystemManager.searchFileExactMatch("shared", "file1.txt"));
+        assertEquals(Arrays.asList("+ root", "  + folder1", "    + shared", "  + folder2", "    + shared",
+                "      - file1.txt"), fileSystemManager.listDirectoryStructure());
+    }
+
+    // Using a file name where a folder is expected is ignored
+    @Test
+    public void test_file_name_used_as_folder_is_ignored() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "file1.txt", false);
+        fileSystemManager.addFileOrFolder("file1.txt", "file2.txt", false);
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.moveFileOrFolder("folder1", "file1.txt");
+
+        assertTrue(fileSystemManager.listContents("file1.txt").isEmpty());
+        assertTrue(fileSystemManager.listContents("root").contains("folder1"));
+    }
+
+    // Moving a folder into itself or one of its descendants is rejected
+    @Test
+    public void test_moving_folder_into_own_descendant_is_rejected() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("folder1", "folder2", true);
+        fileSystemManager.addFileOrFolder("folder2", "folder3", true);
+        fileSystemManager.moveFileOrFolder("folder1", "folder3");
+        fileSystemManager.moveFileOrFolder("folder1", "folder1");
+        fileSystemManager.moveFileOrFolder("root", "folder1");
+
+        assertEquals(Arrays.asList("+ root", "  + folder1", "    + folder2", "      + folder3"),
+                fileSystemManager.listDirectoryStructure());
+    }
+
+    // Moving an item into a folder that already holds that name keeps the item where it was
+    @Test
+    public void test_moving_onto_existing_name_keeps_source() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "file1.txt", false);
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("folder1", "file1.txt", false);
+        fileSystemManager.moveFileOrFolder("file1.txt", "folder1");
+
+        assertTrue(fileSystemManager.listContents("root").contains("file1.txt"));
+        assertEquals(1, fileSystemManager.listContents("folder1").size());
+    }
+
+    // Contents of a wide folder keep insertion order and survive moves out of the middle
+    @Test
+    public void test_wide_folder_keeps_insertion_order() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        for (int i = 0; i < 100000; i++) {
+            fileSystemManager.addFileOrFolder("root", "file" + i + ".txt", false);
+        }
+        fileSystemManager.moveFileOrFolder("file500.txt", "archive");
+
+        List<String> contents = fileSystemManager.listContents("root");
+        assertEquals(100000, contents.size());
+        assertEquals("archive", contents.get(0));
+        assertEquals("file499.txt", contents.get(500));
+        assertEquals("file501.txt", contents.get(501));
+        assertEquals("file99999.txt", contents.get(99999));
+    }
+
+    // Prefix search ignores case, stays inside the folder and follows moves
+    @Test
+    public void test_search_files_by_prefix() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("root", "folder2", true);
+        fileSystemManager.addFileOrFolder("folder1", "Report-b.txt", false);
+        fileSystemManager.addFileOrFolder("folder1", "report-a.txt", false);
+        fileSystemManager.addFileOrFolder("folder1", "summary.txt", false);
+        fileSystemManager.addFileOrFolder("folder1", "reports", true);
+        fileSystemManager.addFileOrFolder("folder2", "report-c.txt", false);
+
+        assertEquals(Arrays.asList("report-a.txt", "Report-b.txt"),
+                fileSystemManager.searchFiles("folder1", "REPORT", SearchType.PREFIX));
+        assertEquals(Arrays.asList("report-a.txt", "Report-b.txt", "report-c.txt"),
+                fileSystemManager.searchFiles("root", "rep", SearchType.PREFIX));
+
+        fileSystemManager.moveFileOrFolder("report-c.txt", "folder1");
+        assertEquals(3, fileSystemManager.searchFiles("folder1", "report", SearchType.PREFIX).size());
+        assertTrue(fileSystemManager.searchFiles("folder2", "report", SearchType.PREFIX).isEmpty());
+    }
+
+    // Exact search looks through subfolders and ignores case
+    @Test
+    public void test_search_files_exact() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("folder1", "subfolder", true);
+        fileSystemManager.addFileOrFolder("subfolder", "Notes.md", false);
+        fileSystemManager.addFileOrFolder("root", "notes.md", false);
+
+        assertEquals(Collections.singletonList("Notes.md"),
+                fileSystemManager.searchFiles("folder1", "notes.md", SearchType.EXACT));
+        assertEquals(2, fileSystemManager.searchFiles("root", "NOTES.MD", SearchType.EXACT).size());
+        assertTrue(fileSystemManager.searchFiles("folder1", "notes", SearchType.EXACT).isEmpty());
+    }
+
+    // A limited search returns the first matches by name, whichever way the implementation finds them
+    @Test
+    public void test_limited_search_returns_first_names_everywhere() {
+        for (FileSystemManager fileSystemManager : Arrays.asList(new FileSystemManagerImpl("root"),
+                new ConcurrentFileSystemManager("root"), new CompactFileSystemManager("root"),
+                new SnapshotFileSystemManager("root"), new ShardedFileSystemManager("root", 2))) {
+            fileSystemManager.addFileOrFolder("root", "b", true);
+            fileSystemManager.addFileOrFolder("root", "a", true);
+            fileSystemManager.addFileOrFolder("b", "zeta.log", false);
+            fileSystemManager.addFileOrFolder("b", "alpha.log", false);
+            fileSystemManager.addFileOrFolder("b", "Mid.log", false);
+            fileSystemManager.addFileOrFolder("a", "delta.log", false);
+            fileSystemManager.addFileOrFolder("a", "Alpha.log", false);
+            fileSystemManager.addFileOrFolder("root", "beta.log", false);
+
+            String name = fileSystemManager.getClass().getSimpleName();
+            assertEquals(Arrays.asList("Alpha.log", "alpha.log", "beta.log"),
+                    fileSystemManager.searchFiles("root", "*.log", SearchType.GLOB, 3), name);
+            assertEquals(Arrays.asList("Alpha.log"), fileSystemManager.searchFiles("root", "A", SearchType.PREFIX, 1), name);
+            assertEquals(Arrays.asList("alpha.log", "Mid.log"), fileSystemManager.searchFiles("b", "*.log", SearchType.GLOB, 2), name);
+            assertEquals(Arrays.asList("Mid.log", "zeta.log"), fileSystemManager.searchFiles("b", ".*[dz].*", SearchType.REGEX, 5), name);
+        }
+    }
+
+    // Regular expressions ignore case for letters outside US-ASCII, like the other search types
+    @Test
+    public void test_search_files_by_regex_ignores_non_ascii_case() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "\u00c9t\u00e9.txt", false);
+        fileSystemManager.addFileOrFolder("root", "\u00d6L.csv", false);
+
+        assertEquals(Arrays.asList("\u00c9t\u00e9.txt"), fileSystemManager.searchFiles("root", "\u00c9t\u00e9.*", SearchType.REGEX));
+        assertEquals(Arrays.asList("\u00c9t\u00e9.txt"), fileSystemManager.searchFiles("root", "\u00c9T\u00c9\\.TXT", SearchType.REGEX));
+        assertEquals(Arrays.asList("\u00d6L.csv"), fileSystemManager.searchFiles("root", "\u00f6l\\..*", SearchType.REGEX));
+        assertEquals(Arrays.asList("\u00c9t\u00e9.txt"), fileSystemManager.searchFiles("root", "\u00c9T\u00c9*", SearchType.GLOB));
+    }
+
+    // Substring matches fold case the same way on every path, whatever the default locale
+    @Test
+    public void test_like_match_ignores_default_locale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR")); // Where "I" lower-cases to a dotless i
+        try {
+            for (FileSystemManager fileSystemManager : Arrays.asList(new FileSystemManagerImpl("root"),
+                    new FileSystemManagerImpl("root", true), new ShardedFileSystemManager("root", 2))) {
+                fileSystemManager.addFileOrFolder("root", "docs", true);
+                fileSystemManager.addFileOrFolder("docs", "file.txt", false);
+                fileSystemManager.addFileOrFolder("root", "INDEX.md", false);
+
+                assertEquals(Arrays.asList("file.txt"), fileSystemManager.searchFileLikeMatch("root", "FILE"));
+                assertEquals(Arrays.asList("file.txt"), fileSystemManager.searchFileLikeMatch("docs", "FILE"));
+                assertEquals(Arrays.asList("file.txt"), fileSystemManager.searchFileLikeMatchInParallel("root", "FILE", 2));
+                assertEquals(Arrays.asList("INDEX.md"), fileSystemManager.searchFileLikeMatch("root", "index"));
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    // A pattern without a literal prefix searches a folder by walking it, not by scanning every indexed file
+    @Test
+    public void test_search_files_without_prefix_walks_only_the_folder() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "logs", true);
+        fileSystemManager.addFileOrFolder("logs", "2026", true);
+        fileSystemManager.addFileOrFolder("logs", "b.log", false);
+        fileSystemManager.addFileOrFolder("2026", "A.LOG", false);
+        for (int i = 0; i < 1000; i++) {
+            fileSystemManager.addFileOrFolder("root", "other" + i + ".log", false);
+        }
+
+        TraversalCounter counter = TraversalCounter.current();
+        long visitedBefore = counter.visited();
+        assertEquals(Arrays.asList("A.LOG", "b.log"), fileSystemManager.searchFiles("logs", "*.log", SearchType.GLOB));
+        assertEquals(3, counter.visited() - visitedBefore);
+        assertEquals(Arrays.asList("A.LOG"), fileSystemManager.searchFiles("logs", ".\\.log", SearchType.REGEX, 1));
+        assertEquals(1002, fileSystemManager.searchFiles("root", "*.log", SearchType.GLOB).size());
+    }
+
+    // A prefix search below the root costs about as much as the cheaper of walking the folder and scanning the index
+    @Test
+    public void test_prefix_search_below_root_takes_the_cheaper_way() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "small", true);
+        fileSystemManager.addFileOrFolder("root", "big", true);
+        fileSystemManager.addFileOrFolder("small", "report-b.txt", false);
+        fileSystemManager.addFileOrFolder("small", "Report-a.txt", false);
+        for (int i = 0; i < 5000; i++) {
+            fileSystemManager.addFileOrFolder("big", "report" + i + ".txt", false);
+            fileSystemManager.addFileOrFolder("big", "data" + i + ".bin", false);
+        }
+        fileSystemManager.addFileOrFolder("big", "summary.txt", false);
+
+        TraversalCounter counter = TraversalCounter.current();
+        long visitedBefore = counter.visited();
+        assertEquals(Arrays.asList("Report-a.txt", "report-b.txt"), fileSystemManager.searchFiles("small", "report", SearchType.PREFIX));
+        assertTrue(counter.visited() - visitedBefore < 200); // The folder is walked once the index proves larger
+        visitedBefore = counter.visited();
+        assertEquals(Arrays.asList("summary.txt"), fileSystemManager.searchFiles("/big", "SUM", SearchType.PREFIX));
+        assertEquals(1, counter.visited() - visitedBefore); // The index holds a single candidate
+        assertEquals(Arrays.asList("report0.txt", "report1.txt"), fileSystemManager.searchFiles("big", "report", SearchType.PREFIX, 2));
+        assertEquals(5000, fileSystemManager.searchFiles("big", "report", SearchType.PREFIX).size());
+    }
+
+    // Globs and regular expressions match whole names, ignore case and honour the limit
+    @Test
+    public void test_search_files_by_glob_and_regex() {
+        for (FileSystemManager fileSystemManager : Arrays.asList(new FileSystemManagerImpl("root"),
+                new ConcurrentFileSystemManager("root"))) {
+            fileSystemManager.addFileOrFolder("root", "logs", true);
+            fileSystemManager.addFileOrFolder("logs", "2026", true);
+            fileSystemManager.addFileOrFolder("logs", "app.log", false);
+            fileSystemManager.addFileOrFolder("2026", "Server.LOG", false);
+            fileSystemManager.addFileOrFolder("2026", "server.log.gz", false);
+            fileSystemManager.addFileOrFolder("root", "report-2026-01.csv", false);
+            fileSystemManager.addFileOrFolder("root", "report-2026-1.csv", false);
+            fileSystemManager.addFileOrFolder("root", "report-2026-12.csv", false);
+            fileSystemManager.addFileOrFolder("root", "what?.txt", false);
+            fileSystemManager.addFileOrFolder("root", "whatever.txt", false);
+
+            assertEquals(Arrays.asList("app.log", "Server.LOG"), fileSystemManager.searchFiles("root", "*.log", SearchType.GLOB));
+            assertEquals(Arrays.asList("Server.LOG"), fileSystemManager.searchFiles("2026", "*.log", SearchType.GLOB));
+            assertEquals(Arrays.asList("report-2026-01.csv", "report-2026-12.csv"),
+                    fileSystemManager.searchFiles("root", "REPORT-2026-??.csv", SearchType.GLOB));
+            assertEquals(Arrays.asList("what?.txt"), fileSystemManager.searchFiles("root", "what\\?.txt", SearchType.GLOB));
+            assertEquals(Arrays.asList("server.log.gz"), fileSystemManager.searchFiles("root", "s*r*.*.gz", SearchType.GLOB));
+            assertEquals(Arrays.asList("report-2026-1.csv", "report-2026-12.csv"),
+                    fileSystemManager.searchFiles("root", "report-\\d+-1\\d?\\.csv", SearchType.REGEX));
+            assertEquals(Arrays.asList("app.log", "Server.LOG"),
+                    fileSystemManager.searchFiles("root", "server\\.log|app.*", SearchType.REGEX));
+
+            assertEquals(2, fileSystemManager.searchFiles("root", "report-*", SearchType.GLOB, 2).size());
+            assertTrue(fileSystemManager.searchFiles("root", "*", SearchType.GLOB, 0).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> fileSystemManager.searchFiles("root", "*", SearchType.GLOB, -1));
+            assertThrows(IllegalArgumentException.class, () -> fileSystemManager.searchFiles("root", "report-(", SearchType.REGEX));
+        }
+    }
+
+    // Substring search through the trigram index matches the tree walk
+    @Test
+    public void test_search_file_like_match_with_substring_index() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root", true);
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("root", "folder2", true);
+        fileSystemManager.addFileOrFolder("folder1", "access.LOG", false);
+        fileSystemManager.addFileOrFolder("folder1", "error.log.1", false);
+        fileSystemManager.addFileOrFolder("folder2", "catalog.txt", false);
+        fileSystemManager.addFileOrFolder("folder2", "debug.log", false);
+
+        assertEquals(Arrays.asList("access.LOG", "error.log.1"), fileSystemManager.searchFileLikeMatch("folder1", ".log"));
+        assertEquals(Arrays.asList("access.LOG", "error.log.1", "catalog.txt", "debug.log"),
+                fileSystemManager.searchFileLikeMatch("root", "log"));
+        assertEquals(Collections.singletonList("catalog.txt"), fileSystemManager.searchFileLikeMatch("root", "g.t"));
+        assertTrue(fileSystemManager.searchFileLikeMatch("root", "missing").isEmpty());
+
+        fileSystemManager.moveFileOrFolder("debug.log", "folder1");
+        assertEquals(3, fileSystemManager.searchFileLikeMatch("folder1", "LOG").size());
+        assertEquals(4, fileSystemManager.searchFileLikeMatch("root", "o").size());
+    }
+
+    // Streaming the structure produces the same lines as the materialized listing
+    @Test
+    public void test_write_and_iterate_directory_structure() throws Exception {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("folder1", "file1.txt", false);
+        fileSystemManager.addFileOrFolder("folder1", "subfolder", true);
+        fileSystemManager.addFileOrFolder("root", "file2.txt", false);
+
+        StringBuilder out = new StringBuilder();
+        fileSystemManager.writeDirectoryStructure(out);
+        List<String> structure = fileSystemManager.listDirectoryStructure();
+        assertEquals(String.join("\n", structure) + "\n", out.toString());
+
+        Iterator<String> lines = fileSystemManager.iterateDirectoryStructure();
+        assertEquals("+ root", lines.next());
+        assertEquals("  + folder1", lines.next());
+        assertEquals("    - file1.txt", lines.next());
+        assertEquals("    + subfolder", lines.next());
+        assertEquals("  - file2.txt", lines.next());
+        assertFalse(lines.hasNext());
+    }
+
+    // Searching a very deep tree does not overflow the stack, and the limit stops early
+    @Test
+    public void test_search_deep_tree_with_limit() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        String parent = "root";
+        for (int i = 0; i < 50000; i++) {
+            fileSystemManager.addFileOrFolder(parent, "file" + i + ".log", false);
+            fileSystemManager.addFileOrFolder(parent, "level" + i, true);
+            parent = "level" + i;
+        }
+
+        assertEquals(50000, fileSystemManager.searchFileLikeMatch("root", ".log").size());
+        assertEquals(Arrays.asList("file0.log", "file1.log", "file2.log"),
+                fileSystemManager.searchFileLikeMatch("root", ".log", 3));
+        assertEquals(Collections.singletonList("file49999.log"),
+                fileSystemManager.searchFileLikeMatch("level49990", "9999", 5));
+        assertTrue(fileSystemManager.searchFileLikeMatch("missing", ".log", 5).isEmpty());
+        assertFalse(fileSystemManager.iterateFileLikeMatch("missing", ".log").hasNext());
+    }
+
+    // Paging in insertion order stays stable while items are added and moved away
+    @Test
+    public void test_list_contents_paginated_in_insertion_order() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        for (int i = 0; i < 10; i++) {
+            fileSystemManager.addFileOrFolder("root", "file" + i, false);
+        }
+
+        ContentPage first = fileSystemManager.listContents("root", null, 4, SortOrder.INSERTION);
+        assertEquals(Arrays.asList("archive", "file0", "file1", "file2"), first.getItems());
+        fileSystemManager.moveFileOrFolder("file2", "archive");
+        fileSystemManager.moveFileOrFolder("file3", "archive");
+        fileSystemManager.addFileOrFolder("root", "late", false);
+
+        ContentPage second = fileSystemManager.listContents("root", first.getNextCursor(), 4, SortOrder.INSERTION);
+        assertEquals(Arrays.asList("file4", "file5", "file6", "file7"), second.getItems());
+        ContentPage third = fileSystemManager.listContents("root", second.getNextCursor(), 4, SortOrder.INSERTION);
+        assertEquals(Arrays.asList("file8", "file9", "late"), third.getItems());
+        assertFalse(third.hasNext());
+    }
+
+    // Paging in name order, and rejecting cursors from another sort order
+    @Test
+    public void test_list_contents_paginated_by_name() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        for (String name : Arrays.asList("delta", "alpha", "echo", "charlie", "bravo")) {
+            fileSystemManager.addFileOrFolder("root", name, false);
+        }
+
+        ContentPage first = fileSystemManager.listContents("root", null, 2, SortOrder.NAME);
+        assertEquals(Arrays.asList("alpha", "bravo"), first.getItems());
+        fileSystemManager.addFileOrFolder("root", "aardvark", false);
+        fileSystemManager.addFileOrFolder("root", "beta", false);
+        ContentPage second = fileSystemManager.listContents("root", first.getNextCursor(), 3, SortOrder.NAME);
+        assertEquals(Arrays.asList("charlie", "delta", "echo"), second.getItems());
+        assertFalse(second.hasNext());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileSystemManager.listContents("root", first.getNextCursor(), 2, SortOrder.INSERTION));
+        assertThrows(IllegalArgumentException.class, () -> fileSystemManager.listContents("root", null, 0, SortOrder.NAME));
+        assertTrue(fileSystemManager.listContents("missing", null, 2, SortOrder.NAME).getItems().isEmpty());
+    }
+
+    // The largest possible page holds the whole folder, without the look-ahead overflowing
+    @Test
+    public void test_list_contents_with_largest_limit() {
+        for (FileSystemManager fileSystemManager : Arrays.asList(new FileSystemManagerImpl("root"),
+                new CompactFileSystemManager("root"), new SnapshotFileSystemManager("root"))) {
+            for (String name : Arrays.asList("delta", "alpha", "charlie")) {
+                fileSystemManager.addFileOrFolder("root", name, false);
+            }
+
+            ContentPage byInsertion = fileSystemManager.listContents("root", null, Integer.MAX_VALUE, SortOrder.INSERTION);
+            assertEquals(Arrays.asList("delta", "alpha", "charlie"), byInsertion.getItems());
+            assertFalse(byInsertion.hasNext());
+            ContentPage byName = fileSystemManager.listContents("root", null, Integer.MAX_VALUE, SortOrder.NAME);
+            assertEquals(Arrays.asList("alpha", "charlie", "delta"), byName.getItems());
+            assertFalse(byName.hasNext());
+        }
+    }
+
+    // Paths address folders that share a name, and follow moves
+    @Test
+    public void test_path_based_addressing() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("/", "projects", true);
+        fileSystemManager.addFileOrFolder("/projects", "2025", true);
+        fileSystemManager.addFileOrFolder("/projects", "2026", true);
+        fileSystemManager.addFileOrFolder("/projects/2025", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026/q3", "report.pdf", false);
+        fileSystemManager.addFileOrFolder("/projects/2025/q3/", "old.pdf", false);
+
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/projects/2026/q3"));
+        assertEquals(Collections.singletonList("old.pdf"), fileSystemManager.listContents("q3"));
+        assertEquals("report.pdf", fileSystemManager.searchFileExactMatch("/projects/2026/q3", "report.pdf"));
+        assertTrue(fileSystemManager.listContents("/projects/2026/q3/report.pdf").isEmpty());
+        assertTrue(fileSystemManager.listContents("/projects/2027").isEmpty());
+
+        fileSystemManager.addFileOrFolder("/", "archive", true);
+        fileSystemManager.moveFileOrFolder("/projects/2026", "/archive");
+        assertTrue(fileSystemManager.listContents("/projects/2026/q3").isEmpty());
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/archive/2026/q3"));
+        fileSystemManager.moveFileOrFolder("/archive/2026/q3/report.pdf", "/projects");
+        assertEquals(Arrays.asList("2025", "report.pdf"), fileSystemManager.listContents("/projects"));
+    }
+
+    // A batch applies operations in order and reports why each failed one did nothing
+    @Test
+    public void test_apply_batch_reports_each_operation() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        List<OperationStatus> results = fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.add("root", "folder2", true),
+                FileSystemOperation.add("folder2", "file1.txt", false),
+                FileSystemOperation.add("folder2", "file1.txt", false),
+                FileSystemOperation.add("missing", "file2.txt", false),
+                FileSystemOperation.add("file1.txt", "file3.txt", false),
+                FileSystemOperation.move("folder2", "folder1"),
+                FileSystemOperation.move("folder2", "folder1"),
+                FileSystemOperation.move("folder1", "folder2"),
+                FileSystemOperation.move("root", "folder1"),
+                FileSystemOperation.move("missing", "folder1"),
+                FileSystemOperation.move("file1.txt", "missing"),
+                FileSystemOperation.add("/folder1/folder2", "file1.txt", false),
+                FileSystemOperation.move("file1.txt", "root")));
+
+        assertEquals(Arrays.asList(OperationStatus.APPLIED, OperationStatus.APPLIED, OperationStatus.NAME_TAKEN,
+                OperationStatus.PARENT_NOT_FOUND, OperationStatus.PARENT_NOT_FOUND, OperationStatus.APPLIED,
+                OperationStatus.ALREADY_IN_TARGET, OperationStatus.TARGET_INSIDE_SOURCE,
+                OperationStatus.ROOT_NOT_MOVABLE, OperationStatus.SOURCE_NOT_FOUND, OperationStatus.TARGET_NOT_FOUND,
+                OperationStatus.NAME_TAKEN, OperationStatus.APPLIED), results);
+        assertEquals(Arrays.asList("+ root", "  + folder1", "    + folder2", "  - file1.txt"),
+                fileSystemManager.listDirectoryStructure());
+    }
+
+    // A bulk load into one folder keeps insertion order, names and searches intact
+    @Test
+    public void test_apply_batch_bulk_load() {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        List<FileSystemOperation> operations = new ArrayList<>();
+        operations.add(FileSystemOperation.add("root", "bulk", true));
+        for (int i = 0; i < 10000; i++) {
+            operations.add(FileSystemOperation.add("bulk", "file" + i, false));
+        }
+        operations.add(FileSystemOperation.add("/bulk", "file0", false));
+
+        List<OperationStatus> results = fileSystemManager.applyBatch(operations);
+        assertEquals(OperationStatus.NAME_TAKEN, results.get(results.size() - 1));
+        List<String> contents = fileSystemManager.listContents("bulk");
+        assertEquals(10000, contents.size());
+        assertEquals("file0", contents.get(0));
+        assertEquals("file9999", contents.get(9999));
+        assertEquals("file1234", fileSystemManager.searchFileExactMatch("bulk", "file1234"));
+        assertEquals(Arrays.asList("file9999"), fileSystemManager.searchFiles("root", "file9999", SearchType.EXACT));
+    }
+
+    // Folder figures follow adds and moves, whether kept up to date or counted on demand
+    @Test
+    public void test_folder_stats_follow_adds_and_moves() {
+        for (FileSystemManager fileSystemManager : Arrays.asList(new FileSystemManagerImpl("root", false, true),
+                new FileSystemManagerImpl("root"), new ConcurrentFileSystemManager("root", 4, true),
+                new ShardedFileSystemManager("root", 2, true))) {
+            assertFolderStatsFollowAddsAndMoves(fileSystemManager);
+        }
+    }
+
+    // Includes a move that takes away the deepest branch
+    private static void assertFolderStatsFollowAddsAndMoves(FileSystemManager fileSystemManager) {
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("docs", "deep", true);
+        fileSystemManager.addFileOrFolder("deep", "deeper", true);
+        fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.addFile("deeper", "a.bin", 100),
+                FileSystemOperation.addFile("docs", "b.txt", 20),
+                FileSystemOperation.addFile("root", "c.txt", 3)));
+
+        assertEquals(new FolderStats(3, 3, 123, 4), fileSystemManager.getFolderStats("root"));
+        assertEquals(new FolderStats(2, 2, 120, 3), fileSystemManager.getFolderStats("docs"));
+        assertEquals(new FolderStats(1, 0, 100, 1), fileSystemManager.getFolderStats("deeper"));
+
+        fileSystemManager.moveFileOrFolder("deep", "root");
+        assertEquals(new FolderStats(1, 0, 20, 1), fileSystemManager.getFolderStats("docs"));
+        assertEquals(new FolderStats(1, 1, 100, 2), fileSystemManager.getFolderStats("deep"));
+        assertEquals(new FolderStats(3, 3, 123, 3), fileSystemManager.getFolderStats("root"));
+
+        fileSystemManager.moveFileOrFolder("a.bin", "docs");
+        assertEquals(new FolderStats(0, 1, 0, 1), fileSystemManager.getFolderStats("deep"));
+        assertEquals(new FolderStats(2, 0, 120, 1), fileSystemManager.getFolderStats("/docs"));
+        assertEquals(new FolderStats(3, 3, 123, 2), fileSystemManager.getFolderStats("root"));
+        assertNull(fileSystemManager.getFolderStats("c.txt"));
+        assertNull(fileSystemManager.getFolderStats("missing"));
+    }
 }
@@ -0,0 +1,103 @@
+package com.filemanager.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filemanager.enums.SearchType;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemOperation;
+
+public class MappedFileSystemManagerTest {
+    @TempDir
+    Path directory;
+
+    // Every read answers exactly like the manager that wrote the file
+    @Test
+    public void test_reads_match_the_source_tree() throws IOException {
+        FileSystemManagerImpl source = new FileSystemManagerImpl("root");
+        source.addFileOrFolder("root", "a", true);
+        source.addFileOrFolder("root", "x", true);
+        source.addFileOrFolder("a", "x", true);
+        source.addFileOrFolder("x", "Report.pdf", false);
+        source.addFileOrFolder("/a/x", "report.txt", false);
+        source.addFileOrFolder("a", "zeta.txt", false);
+        source.addFileOrFolder("root", "b", true);
+        source.addFileOrFolder("b", "notes.txt", false);
+        source.apply(FileSystemOperation.addFile("b", "data.bin", 4096));
+        source.apply(FileSystemOperation.addFile("a", "tiny.bin", 7));
+        source.moveFileOrFolder("b", "/a/x");
+        Path file = directory.resolve("tree.fsm");
+        source.writeMappedSnapshot(file);
+
+        try (MappedFileSystemManager mapped = MappedFileSystemManager.open(file)) {
+            assertEquals(source.listDirectoryStructure(), mapped.listDirectoryStructure());
+            for (String folder : Arrays.asList("root", "a", "x", "b", "/", "/a/x", "/a/x/b", "missing", "zeta.txt")) {
+                assertEquals(source.listContents(folder), mapped.listContents(folder));
+                assertEquals(source.searchFileLikeMatch(folder, "REP"), mapped.searchFileLikeMatch(folder, "REP"));
+                assertEquals(source.searchFiles(folder, "report", SearchType.PREFIX), mapped.searchFiles(folder, "report", SearchType.PREFIX));
+                assertEquals(source.searchFiles(folder, "NOTES.TXT", SearchType.EXACT), mapped.searchFiles(folder, "NOTES.TXT", SearchType.EXACT));
+                assertEquals(source.getFolderStats(folder), mapped.getFolderStats(folder));
+            }
+            assertEquals(4103, mapped.getFolderStats("root").getTotalBytes());
+            assertEquals("report.txt", mapped.searchFileExactMatch("/a/x", "REPORT.TXT"));
+            assertEquals("zeta.txt", mapped.searchFileExactMatch("a", "zeta.txt"));
+            assertNull(mapped.searchFileExactMatch("a", "x"));
+        }
+    }
+
+    // Pages in both orders cover the folder exactly once
+    @Test
+    public void test_paginated_listing() throws IOException {
+        FileSystemManagerImpl source = new FileSystemManagerImpl("root");
+        for (int i = 0; i < 25; i++) {
+            source.addFileOrFolder("root", "file" + (i * 7 % 25), false);
+        }
+        Path file = directory.resolve("tree.fsm");
+        source.writeMappedSnapshot(file);
+
+        try (MappedFileSystemManager mapped = MappedFileSystemManager.open(file)) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                List<String> listed = new ArrayList<>();
+                String cursor = null;
+                do {
+                    ContentPage page = mapped.listContents("root", cursor, 10, sortOrder);
+                    listed.addAll(page.getItems());
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+                List<String> expected = source.listContents("root");
+                if (sortOrder == SortOrder.NAME) {
+                    Collections.sort(expected);
+                }
+                assertEquals(expected, listed);
+            }
+        }
+    }
+
+    // The mapped tree rejects writes and incomplete files
+    @Test
+    public void test_read_only_and_validated() throws IOException {
+        Path file = directory.resolve("tree.fsm");
+        new FileSystemManagerImpl("root").writeMappedSnapshot(file);
+        try (MappedFileSystemManager mapped = MappedFileSystemManager.open(file)) {
+            assertEquals(Collections.singletonList("+ root"), mapped.listDirectoryStructure());
+            assertTrue(mapped.listContents("root").isEmpty());
+            assertThrows(UnsupportedOperationException.class, () -> mapped.addFileOrFolder("root", "a", true));
+        }
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> MappedFileSystemManager.open(file));
+    }
+}
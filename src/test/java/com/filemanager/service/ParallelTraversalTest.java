@@ -0,0 +1,85 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.models.File;
+import com.filemanager.models.FileSystemItem;
+import com.filemanager.models.Folder;
+
+public class ParallelTraversalTest {
+    private static final TreeShape<FileSystemItem> SHAPE = new TreeShape<FileSystemItem>() {
+        @Override
+        public Iterator<FileSystemItem> children(FileSystemItem folder) {
+            return ((Folder) folder).getItems().iterator();
+        }
+
+        @Override
+        public String name(FileSystemItem node) {
+            return node.getName();
+        }
+
+        @Override
+        public boolean isFolder(FileSystemItem node) {
+            return node.isFolder();
+        }
+    };
+
+    // Every split threshold produces the sequential output in the sequential order
+    @Test
+    public void test_matches_sequential_walk_at_any_threshold() {
+        Folder root = new Folder("root");
+        List<Folder> folders = new ArrayList<>(Arrays.asList(root));
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            Folder parent = folders.get(random.nextInt(folders.size()));
+            if (random.nextInt(4) == 0) {
+                Folder folder = new Folder("dir" + i);
+                parent.addItem(folder);
+                folders.add(folder);
+            } else {
+                parent.addItem(new File("file" + i + ".txt"));
+            }
+        }
+
+        List<String> structure = TreeTraversal.drain(TreeTraversal.directoryStructure(SHAPE, root));
+        Folder subtree = folders.get(5);
+        List<String> matches = TreeTraversal.drain(TreeTraversal.matchingFiles(SHAPE, subtree, name -> name.contains("1")));
+        for (int threshold : new int[] {1, 2, 7, 100, 100_000}) {
+            assertEquals(structure, ParallelTraversal.directoryStructure(SHAPE, root, 4, threshold));
+            assertEquals(matches, ParallelTraversal.matchingFiles(SHAPE, subtree, name -> name.contains("1"), 4, threshold));
+        }
+    }
+
+    // The managers' parallel calls agree with their sequential ones, also on a deep chain
+    @Test
+    public void test_managers_match_sequential_results() {
+        List<FileSystemManager> managers = Arrays.asList(new FileSystemManagerImpl("root"),
+                new ConcurrentFileSystemManager("root"), new SnapshotFileSystemManager("root"), new CompactFileSystemManager("root"));
+        for (FileSystemManager fileSystemManager : managers) {
+            String parent = "root";
+            for (int i = 0; i < 20_000; i++) {
+                if (i % 3 == 0) {
+                    fileSystemManager.addFileOrFolder(parent, "dir" + i, true);
+                    parent = i % 2 == 0 ? "dir" + i : parent;
+                } else {
+                    fileSystemManager.addFileOrFolder(parent, "File" + i + ".txt", false);
+                }
+            }
+
+            assertEquals(fileSystemManager.listDirectoryStructure(), fileSystemManager.listDirectoryStructureInParallel(4));
+            assertEquals(fileSystemManager.searchFileLikeMatch("root", "le1"), fileSystemManager.searchFileLikeMatchInParallel("root", "le1", 4));
+            assertEquals(fileSystemManager.searchFileLikeMatch("dir6", "7"), fileSystemManager.searchFileLikeMatchInParallel("dir6", "7", 3));
+            assertEquals(fileSystemManager.listDirectoryStructure(), fileSystemManager.listDirectoryStructureInParallel(1));
+            assertEquals(0, fileSystemManager.searchFileLikeMatchInParallel("missing", "le1", 4).size());
+        }
+        assertThrows(IllegalArgumentException.class, () -> managers.get(0).listDirectoryStructureInParallel(0));
+    }
+}
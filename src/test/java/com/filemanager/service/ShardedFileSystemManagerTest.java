@@ -0,0 +1,160 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.EventType;
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SearchType;
+import com.filemanager.models.FileSystemEvent;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.FolderStats;
+
+public class ShardedFileSystemManagerTest {
+    // Tracked folder figures follow a subtree detached from one shard and attached to another
+    @Test
+    public void test_tracked_folder_stats_follow_cross_shard_moves() {
+        ShardedFileSystemManager fileSystemManager = new ShardedFileSystemManager("root", 2, true);
+        fileSystemManager.addFileOrFolder("root", "a", true); // "a" and "b" hash to different shards
+        fileSystemManager.addFileOrFolder("root", "b", true);
+        fileSystemManager.addFileOrFolder("a", "docs", true);
+        fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.addFile("docs", "plan.txt", 40),
+                FileSystemOperation.addFile("b", "notes.txt", 2)));
+
+        fileSystemManager.moveFileOrFolder("docs", "b");
+        fileSystemManager.addFileOrFolder("docs", "later", true);
+        assertEquals(new FolderStats(0, 0, 0, 0), fileSystemManager.getFolderStats("a"));
+        assertEquals(new FolderStats(2, 2, 42, 2), fileSystemManager.getFolderStats("b"));
+        assertEquals(new FolderStats(1, 1, 40, 1), fileSystemManager.getFolderStats("docs"));
+        assertEquals(new FolderStats(2, 4, 42, 3), fileSystemManager.getFolderStats("root"));
+    }
+
+    // A watch follows its folder into another shard, and a watch on the root sees every shard
+    @Test
+    public void test_watches_follow_folders_across_shards() throws InterruptedException {
+        ShardedFileSystemManager fileSystemManager = new ShardedFileSystemManager("root", 2);
+        fileSystemManager.addFileOrFolder("root", "a", true); // "a" and "b" hash to different shards
+        fileSystemManager.addFileOrFolder("root", "b", true);
+        fileSystemManager.addFileOrFolder("a", "docs", true);
+        BlockingQueue<FileSystemEvent> docsEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<FileSystemEvent> treeEvents = new LinkedBlockingQueue<>();
+        fileSystemManager.watch("docs", false, docsEvents::addAll);
+        fileSystemManager.watch("/", true, treeEvents::addAll);
+
+        assertEquals(OperationStatus.APPLIED, fileSystemManager.apply(FileSystemOperation.move("docs", "b")));
+        fileSystemManager.addFileOrFolder("docs", "plan.txt", false);
+        fileSystemManager.addFileOrFolder("root", "notes.txt", false);
+
+        assertEquals(new FileSystemEvent(EventType.ADDED, "/b/docs", "plan.txt", false), docsEvents.poll(10, TimeUnit.SECONDS));
+        List<FileSystemEvent> events = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            events.add(treeEvents.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.MOVED_OUT, "/a", "docs", true),
+                new FileSystemEvent(EventType.MOVED_IN, "/b", "docs", true),
+                new FileSystemEvent(EventType.ADDED, "/b/docs", "plan.txt", false),
+                new FileSystemEvent(EventType.ADDED, "/", "notes.txt", false)), events);
+        assertEquals(Arrays.asList("plan.txt"), fileSystemManager.listContents("/b/docs"));
+        assertEquals(Arrays.asList("plan.txt"), fileSystemManager.searchFiles("root", "PLAN.TXT", SearchType.EXACT));
+    }
+
+    // A direct watch on the root sees root-level adds and moves in every shard, and nothing deeper
+    @Test
+    public void test_direct_root_watch_sees_every_shard() throws InterruptedException {
+        ShardedFileSystemManager fileSystemManager = new ShardedFileSystemManager("root", 2);
+        fileSystemManager.addFileOrFolder("root", "a", true); // "a" and "b" hash to different shards
+        fileSystemManager.addFileOrFolder("root", "b", true);
+        fileSystemManager.addFileOrFolder("b", "docs", true);
+        BlockingQueue<FileSystemEvent> rootEvents = new LinkedBlockingQueue<>();
+        fileSystemManager.watch("root", false, rootEvents::addAll);
+
+        fileSystemManager.addFileOrFolder("root", "notes.txt", false);
+        fileSystemManager.addFileOrFolder("docs", "deep.txt", false);
+        fileSystemManager.moveFileOrFolder("a", "docs"); // Out of the root and into the other shard
+        fileSystemManager.moveFileOrFolder("docs", "/"); // Up to the root within its shard
+
+        List<FileSystemEvent> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(rootEvents.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.ADDED, "/", "notes.txt", false),
+                new FileSystemEvent(EventType.MOVED_OUT, "/", "a", true),
+                new FileSystemEvent(EventType.MOVED_IN, "/", "docs", true)), events);
+        assertNull(rootEvents.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    // Writers on different tenants, moves between tenants and root-wide reads leave every file in exactly one place
+    @Test
+    public void test_concurrent_tenants_and_cross_shard_moves() throws Exception {
+        ShardedFileSystemManager fileSystemManager = new ShardedFileSystemManager("root", 4);
+        int writers = 4;
+        int filesPerWriter = 2000;
+        for (int w = 0; w < writers; w++) {
+            fileSystemManager.addFileOrFolder("root", "tenant" + w, true);
+            fileSystemManager.addFileOrFolder("tenant" + w, "archive" + w, true);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < filesPerWriter; i++) {
+                    fileSystemManager.addFileOrFolder(i % 2 == 0 ? "/tenant" + writer : "archive" + writer, "file" + writer + "-" + i, false);
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            Random random = new Random(3);
+            for (int i = 0; i < 500; i++) {
+                fileSystemManager.moveFileOrFolder("archive" + random.nextInt(writers), "tenant" + random.nextInt(writers));
+            }
+            return null;
+        }));
+        futures.add(executor.submit(() -> {
+            start.await();
+            int seen = 0;
+            for (int i = 0; i < 50; i++) {
+                int files = fileSystemManager.searchFileLikeMatch("root", "file").size();
+                assertTrue(files >= seen); // A moving subtree is never missed
+                seen = files;
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(writers * filesPerWriter, fileSystemManager.searchFiles("root", "file", SearchType.PREFIX).size());
+        assertEquals(writers * filesPerWriter, fileSystemManager.getFolderStats("root").getFileCount());
+        int archived = 0;
+        for (int w = 0; w < writers; w++) {
+            archived += fileSystemManager.listContents("archive" + w).size();
+        }
+        assertEquals(writers * filesPerWriter / 2, archived);
+        assertTrue(fileSystemManager.listDirectoryStructure().size() > writers * filesPerWriter);
+    }
+}
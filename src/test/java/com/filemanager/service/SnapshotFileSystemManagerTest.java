@@ -0,0 +1,218 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.EventType;
+import com.filemanager.enums.OperationStatus;
+import com.filemanager.enums.SortOrder;
+import com.filemanager.models.ContentPage;
+import com.filemanager.models.FileSystemEvent;
+import com.filemanager.models.FileSystemOperation;
+
+public class SnapshotFileSystemManagerTest {
+    // A snapshot keeps showing the tree as it was when taken
+    @Test
+    public void test_snapshot_is_isolated_from_later_writes() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "folder1", true);
+        fileSystemManager.addFileOrFolder("folder1", "file1.txt", false);
+        FileSystemSnapshot before = fileSystemManager.snapshot();
+
+        fileSystemManager.addFileOrFolder("root", "folder2", true);
+        fileSystemManager.moveFileOrFolder("file1.txt", "folder2");
+
+        assertEquals(Collections.singletonList("file1.txt"), before.listContents("folder1"));
+        assertTrue(before.listContents("folder2").isEmpty());
+        assertNull(before.searchFileExactMatch("folder2", "file1.txt"));
+        assertEquals(Collections.singletonList("file1.txt"), fileSystemManager.listContents("folder2"));
+        assertTrue(fileSystemManager.listContents("folder1").isEmpty());
+    }
+
+    // Moving most children out of a wide folder keeps the rest in insertion order
+    @Test
+    public void test_wide_folder_order_survives_moves() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "source", true);
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        for (int i = 0; i < 5000; i++) {
+            fileSystemManager.addFileOrFolder("source", "file" + i, false);
+        }
+        for (int i = 0; i < 5000; i++) {
+            if (i % 7 != 0) {
+                fileSystemManager.moveFileOrFolder("file" + i, "archive");
+            }
+        }
+
+        List<String> remaining = fileSystemManager.listContents("source");
+        assertEquals(715, remaining.size());
+        for (int i = 0; i < remaining.size(); i++) {
+            assertEquals("file" + (i * 7), remaining.get(i));
+        }
+        assertEquals("file4999", fileSystemManager.searchFileExactMatch("archive", "file4999"));
+        assertEquals("file4999", fileSystemManager.listContents("archive").get(4284));
+    }
+
+    // Readers traverse snapshots while writers keep adding
+    @Test
+    public void test_readers_run_alongside_writers() throws Exception {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "folder", true);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 5000; i++) {
+                fileSystemManager.addFileOrFolder("folder", "file" + i, false);
+            }
+            writing.set(false);
+        }));
+        for (int r = 0; r < 2; r++) {
+            futures.add(executor.submit(() -> {
+                while (writing.get()) {
+                    FileSystemSnapshot snapshot = fileSystemManager.snapshot();
+                    int listed = snapshot.listContents("folder").size();
+                    assertEquals(listed + 2, snapshot.listDirectoryStructure().size());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(5000, fileSystemManager.searchFileLikeMatch("root", "file").size());
+    }
+
+    // Paging a snapshot folder in both orders, across compaction of moved-out children
+    @Test
+    public void test_paginated_listing() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        for (int i = 0; i < 100; i++) {
+            fileSystemManager.addFileOrFolder("root", "file" + (char) ('a' + i % 26) + i, false);
+        }
+        ContentPage first = fileSystemManager.listContents("root", null, 10, SortOrder.INSERTION);
+        for (int i = 0; i < 80; i++) {
+            fileSystemManager.moveFileOrFolder("file" + (char) ('a' + i % 26) + i, "archive");
+        }
+
+        ContentPage second = fileSystemManager.listContents("root", first.getNextCursor(), 10, SortOrder.INSERTION);
+        assertEquals("filec80", second.getItems().get(0));
+        assertEquals(10, second.getItems().size());
+        ContentPage third = fileSystemManager.listContents("root", second.getNextCursor(), 10, SortOrder.INSERTION);
+        assertEquals("filev99", third.getItems().get(9));
+        assertFalse(third.hasNext());
+
+        ContentPage byName = fileSystemManager.listContents("archive", null, 3, SortOrder.NAME);
+        assertEquals(Arrays.asList("filea0", "filea26", "filea52"), byName.getItems());
+        assertEquals(Arrays.asList("filea78", "fileb1", "fileb27"),
+                fileSystemManager.listContents("archive", byName.getNextCursor(), 3, SortOrder.NAME).getItems());
+    }
+
+    // Paths address folders that share a name, and follow moves
+    @Test
+    public void test_path_based_addressing() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("/", "projects", true);
+        fileSystemManager.addFileOrFolder("/projects", "2025", true);
+        fileSystemManager.addFileOrFolder("/projects", "2026", true);
+        fileSystemManager.addFileOrFolder("/projects/2025", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026", "q3", true);
+        fileSystemManager.addFileOrFolder("/projects/2026/q3", "report.pdf", false);
+
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/projects/2026/q3"));
+        assertTrue(fileSystemManager.listContents("q3").isEmpty());
+        fileSystemManager.addFileOrFolder("/", "archive", true);
+        fileSystemManager.moveFileOrFolder("/projects/2026", "/archive");
+        assertTrue(fileSystemManager.listContents("/projects/2026/q3").isEmpty());
+        assertEquals(Collections.singletonList("report.pdf"), fileSystemManager.listContents("/archive/2026/q3"));
+    }
+
+    // A batch is published as a single new version
+    @Test
+    public void test_apply_batch_publishes_once() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        FileSystemSnapshot before = fileSystemManager.snapshot();
+        List<OperationStatus> results = fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.add("root", "folder1", true),
+                FileSystemOperation.add("folder1", "file1.txt", false),
+                FileSystemOperation.add("root", "folder2", true),
+                FileSystemOperation.move("file1.txt", "folder2"),
+                FileSystemOperation.move("folder1", "folder1"),
+                FileSystemOperation.add("folder2", "file1.txt", false)));
+
+        assertEquals(Arrays.asList(OperationStatus.APPLIED, OperationStatus.APPLIED, OperationStatus.APPLIED,
+                OperationStatus.APPLIED, OperationStatus.TARGET_INSIDE_SOURCE, OperationStatus.NAME_TAKEN), results);
+        assertEquals(Collections.singletonList("+ root"), before.listDirectoryStructure());
+        assertEquals(Arrays.asList("+ root", "  + folder1", "  + folder2", "    - file1.txt"),
+                fileSystemManager.listDirectoryStructure());
+    }
+
+    // A batch that fails part way publishes nothing and leaves the names it added free to claim
+    @Test
+    public void test_failed_batch_releases_its_names() {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        assertThrows(NullPointerException.class, () -> fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.add("root", "docs", true), null)));
+        assertEquals(Collections.singletonList("+ root"), fileSystemManager.listDirectoryStructure());
+
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("docs", "plan.txt", false);
+        assertEquals(Collections.singletonList("plan.txt"), fileSystemManager.listContents("docs"));
+    }
+
+    // Watchers hear of adds, moves and batches once the version holding them is published
+    @Test
+    public void test_watches_see_published_changes() throws InterruptedException {
+        SnapshotFileSystemManager fileSystemManager = new SnapshotFileSystemManager("root");
+        fileSystemManager.addFileOrFolder("root", "a", true);
+        fileSystemManager.addFileOrFolder("root", "b", true);
+        fileSystemManager.addFileOrFolder("a", "docs", true);
+        BlockingQueue<FileSystemEvent> docsEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<FileSystemEvent> treeEvents = new LinkedBlockingQueue<>();
+        List<Boolean> visibleOnDelivery = Collections.synchronizedList(new ArrayList<>());
+        fileSystemManager.watch("docs", false, docsEvents::addAll);
+        fileSystemManager.watch("/", true, events -> {
+            for (FileSystemEvent event : events) {
+                visibleOnDelivery.add(fileSystemManager.snapshot().locateItem(event.getName()) != null);
+            }
+            treeEvents.addAll(events);
+        });
+
+        fileSystemManager.moveFileOrFolder("docs", "b");
+        fileSystemManager.addFileOrFolder("docs", "plan.txt", false);
+        fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.add("root", "notes.txt", false),
+                FileSystemOperation.add("missing", "lost.txt", false)));
+        assertNull(fileSystemManager.watch("missing", true, events -> { }));
+
+        assertEquals(new FileSystemEvent(EventType.ADDED, "/b/docs", "plan.txt", false), docsEvents.poll(10, TimeUnit.SECONDS));
+        List<FileSystemEvent> events = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            events.add(treeEvents.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.MOVED_OUT, "/a", "docs", true),
+                new FileSystemEvent(EventType.MOVED_IN, "/b", "docs", true),
+                new FileSystemEvent(EventType.ADDED, "/b/docs", "plan.txt", false),
+                new FileSystemEvent(EventType.ADDED, "/", "notes.txt", false)), events);
+        assertNull(treeEvents.poll(100, TimeUnit.MILLISECONDS));
+        assertFalse(visibleOnDelivery.contains(false));
+    }
+}
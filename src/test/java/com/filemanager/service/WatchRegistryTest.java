@@ -0,0 +1,128 @@
+package com.filemanager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.filemanager.enums.EventType;
+import com.filemanager.models.FileSystemEvent;
+import com.filemanager.models.FileSystemOperation;
+import com.filemanager.models.Folder;
+
+public class WatchRegistryTest {
+    // Direct watches see their own folder, recursive ones everything below, and both follow a moved folder
+    @Test
+    public void test_watches_report_adds_and_moves() throws InterruptedException {
+        FileSystemManagerImpl fileSystemManager = new FileSystemManagerImpl("root");
+        fileSystemManager.addFileOrFolder("root", "docs", true);
+        fileSystemManager.addFileOrFolder("root", "archive", true);
+        BlockingQueue<FileSystemEvent> docsEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<FileSystemEvent> treeEvents = new LinkedBlockingQueue<>();
+        WatchSubscription docsWatch = fileSystemManager.watch("docs", false, docsEvents::addAll);
+        fileSystemManager.watch("root", true, treeEvents::addAll);
+        assertNull(fileSystemManager.watch("missing", true, treeEvents::addAll));
+
+        fileSystemManager.addFileOrFolder("docs", "drafts", true);
+        fileSystemManager.applyBatch(Arrays.asList(
+                FileSystemOperation.add("drafts", "plan.txt", false),
+                FileSystemOperation.add("missing", "lost.txt", false)));
+        fileSystemManager.moveFileOrFolder("docs", "archive");
+        fileSystemManager.moveFileOrFolder("plan.txt", "docs");
+
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.ADDED, "/docs", "drafts", true),
+                new FileSystemEvent(EventType.MOVED_IN, "/archive/docs", "plan.txt", false)), take(docsEvents, 2));
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.ADDED, "/docs", "drafts", true),
+                new FileSystemEvent(EventType.ADDED, "/docs/drafts", "plan.txt", false),
+                new FileSystemEvent(EventType.MOVED_OUT, "/", "docs", true),
+                new FileSystemEvent(EventType.MOVED_IN, "/archive", "docs", true),
+                new FileSystemEvent(EventType.MOVED_OUT, "/archive/docs/drafts", "plan.txt", false),
+                new FileSystemEvent(EventType.MOVED_IN, "/archive/docs", "plan.txt", false)), take(treeEvents, 6));
+
+        docsWatch.close();
+        fileSystemManager.addFileOrFolder("docs", "late.txt", false);
+        assertEquals(new FileSystemEvent(EventType.ADDED, "/archive/docs", "late.txt", false),
+                treeEvents.poll(10, TimeUnit.SECONDS));
+        assertNull(docsEvents.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    // While a watcher is busy, repeated changes to one item coalesce and too many changes overflow
+    @Test
+    public void test_slow_watcher_gets_coalesced_batches_and_overflow() throws InterruptedException {
+        WatchRegistry<Folder> watches = new WatchRegistry<>(Folder::getParent, FileSystemPaths::pathOf, 3);
+        Folder root = new Folder("root");
+        Folder other = new Folder("other");
+        root.addItem(other);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<FileSystemEvent>> batches = new LinkedBlockingQueue<>();
+        watches.subscribe(root, true, events -> {
+            batches.add(events);
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        watches.added(root, "first.txt", false);
+        assertTrue(busy.await(10, TimeUnit.SECONDS));
+        watches.added(root, "a.txt", false);
+        watches.moved(root, other, "a.txt", false);
+        watches.moved(other, root, "a.txt", false);
+        release.countDown();
+        assertEquals(Arrays.asList(new FileSystemEvent(EventType.ADDED, "/", "first.txt", false)),
+                batches.poll(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(
+                new FileSystemEvent(EventType.MOVED_OUT, "/other", "a.txt", false),
+                new FileSystemEvent(EventType.MOVED_IN, "/", "a.txt", false)), batches.poll(10, TimeUnit.SECONDS));
+
+        WatchRegistry<Folder> overflowing = new WatchRegistry<>(Folder::getParent, FileSystemPaths::pathOf, 3);
+        CountDownLatch overflowBusy = new CountDownLatch(1);
+        CountDownLatch overflowRelease = new CountDownLatch(1);
+        BlockingQueue<List<FileSystemEvent>> overflowBatches = new LinkedBlockingQueue<>();
+        overflowing.subscribe(other, false, events -> {
+            overflowBatches.add(events);
+            overflowBusy.countDown();
+            try {
+                overflowRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        overflowing.added(other, "file0", false);
+        assertTrue(overflowBusy.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            overflowing.added(other, "file" + i, false);
+        }
+        overflowRelease.countDown();
+        overflowBatches.poll(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(FileSystemEvent.overflow()), overflowBatches.poll(10, TimeUnit.SECONDS));
+        overflowing.added(other, "file5", false);
+        assertEquals(Arrays.asList(new FileSystemEvent(EventType.ADDED, "/other", "file5", false)),
+                overflowBatches.poll(10, TimeUnit.SECONDS));
+    }
+
+    private static List<FileSystemEvent> take(BlockingQueue<FileSystemEvent> events, int count) throws InterruptedException {
+        List<FileSystemEvent> taken = new ArrayList<>();
+        while (taken.size() < count) {
+            FileSystemEvent event = events.poll(10, TimeUnit.SECONDS);
+            if (event == null) {
+                break;
+            }
+            taken.add(event);
+        }
+        return taken;
+    }
+}